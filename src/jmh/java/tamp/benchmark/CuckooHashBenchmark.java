@@ -0,0 +1,60 @@
+package tamp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tamp.set.CuckooHashSet;
+import tamp.set.HashFamilies;
+
+/**
+ * Lookups per second of {@link CuckooHashSet} depending on its {@link HashFamilies hash family}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+public class CuckooHashBenchmark {
+
+    @Param({"GUAVA", "MURMUR3", "MULTIPLY_SHIFT"})
+    HashFamilies hashFamily;
+
+    @Param({"65536"})
+    int keySpace;
+
+    @Param({"UNIFORM", "ZIPFIAN"})
+    KeyDistribution distribution;
+
+    CuckooHashSet<Integer> set;
+    KeyStream stream;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        set = new CuckooHashSet<>(keySpace, hashFamily);
+        for (int i = 0; i < keySpace; i += 2) {
+            set.add(i);
+        }
+        stream = new KeyStream(distribution, keySpace, 1.0, 0);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        stream.advance();
+        return set.contains(stream.key());
+    }
+}
@@ -0,0 +1,61 @@
+package tamp.benchmark;
+
+import java.util.Random;
+
+/**
+ * How the keys of a workload are drawn out of [0, keySpace).
+ */
+public enum KeyDistribution {
+
+    UNIFORM {
+        @Override
+        int[] keys(final int count, final int keySpace, final Random random) {
+            int[] keys = new int[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = random.nextInt(keySpace);
+            }
+            return keys;
+        }
+    },
+
+    /**
+     * Zipf with theta = 0.99 (same skew as YCSB), the hottest keys are spread over the key space
+     * so that they don't all land in neighbouring buckets.
+     */
+    ZIPFIAN {
+        @Override
+        int[] keys(final int count, final int keySpace, final Random random) {
+            double[] cdf = new double[keySpace];
+            double sum = 0;
+            for (int i = 0; i < keySpace; i++) {
+                sum += 1.0 / Math.pow(i + 1, THETA);
+                cdf[i] = sum;
+            }
+            int[] keys = new int[count];
+            for (int i = 0; i < count; i++) {
+                int rank = search(cdf, random.nextDouble() * sum);
+                keys[i] = (int) ((rank * SCRAMBLE & 0x7fffffffL) % keySpace);
+            }
+            return keys;
+        }
+    };
+
+    private static final double THETA = 0.99;
+    private static final long SCRAMBLE = 0x9E3779B1L;
+
+    abstract int[] keys(int count, int keySpace, Random random);
+
+    private static int search(final double[] cdf, final double value) {
+        int low = 0;
+        int high = cdf.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cdf[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
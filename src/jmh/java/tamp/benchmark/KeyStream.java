@@ -0,0 +1,65 @@
+package tamp.benchmark;
+
+import java.util.Random;
+
+/**
+ * Pre-computed, per thread, sequence of operations and keys.
+ * Everything is drawn up front so that neither the RNG nor the boxing of the keys is measured.
+ */
+public final class KeyStream {
+
+    public static final byte READ = 0;
+    public static final byte ADD = 1;
+    public static final byte REMOVE = 2;
+
+    private static final int SIZE = 1 << 16;
+    private static final int MASK = SIZE - 1;
+
+    private final int[] rawKeys;
+    private final Integer[] keys;
+    private final byte[] ops;
+    private int cursor;
+
+    /**
+     * @param readRatio share of READ operations, the rest is split evenly between ADD and REMOVE
+     * so that the size of the structure stays roughly stable during a run.
+     */
+    public KeyStream(final KeyDistribution distribution,
+        final int keySpace,
+        final double readRatio,
+        final long seed) {
+        Random random = new Random(seed);
+        rawKeys = distribution.keys(SIZE, keySpace, random);
+        keys = new Integer[SIZE];
+        ops = new byte[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            keys[i] = rawKeys[i];
+            double draw = random.nextDouble();
+            if (draw < readRatio) {
+                ops[i] = READ;
+            } else {
+                ops[i] = random.nextBoolean() ? ADD : REMOVE;
+            }
+        }
+        cursor = -1;
+    }
+
+    /**
+     * Moves to the next operation.
+     */
+    public void advance() {
+        cursor = (cursor + 1) & MASK;
+    }
+
+    public Integer key() {
+        return keys[cursor];
+    }
+
+    public int rawKey() {
+        return rawKeys[cursor];
+    }
+
+    public byte op() {
+        return ops[cursor];
+    }
+}
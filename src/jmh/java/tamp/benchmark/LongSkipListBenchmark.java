@@ -0,0 +1,91 @@
+package tamp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tamp.skiplist.LongSkipList;
+import tamp.skiplist.SimpleSkipList;
+
+/**
+ * {@link LongSkipList} against {@link SimpleSkipList} of Long on the same workload.
+ * The keys come as primitives, as timestamps would, so boxing them is part of the cost of SimpleSkipList.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+public class LongSkipListBenchmark {
+
+    @Param({"1048576"})
+    int keySpace;
+
+    @Param({"0.5", "0.99"})
+    double readRatio;
+
+    @Param({"UNIFORM", "ZIPFIAN"})
+    KeyDistribution distribution;
+
+    SimpleSkipList<Long> boxed;
+    LongSkipList primitive;
+    KeyStream stream;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int levels = 32 - Integer.numberOfLeadingZeros(keySpace);
+        boxed = new SimpleSkipList<>(levels);
+        primitive = new LongSkipList(levels, keySpace);
+        for (long i = 0; i < keySpace; i += 2) {
+            boxed.add(i);
+            primitive.add(i);
+        }
+        stream = new KeyStream(distribution, keySpace, readRatio, 0);
+    }
+
+    @Benchmark
+    public boolean simpleSkipList() {
+        stream.advance();
+        long key = stream.rawKey();
+        switch (stream.op()) {
+            case KeyStream.READ:
+                return boxed.contains(key);
+            case KeyStream.ADD:
+                boxed.add(key);
+                return true;
+            default:
+                boxed.remove(key);
+                return false;
+        }
+    }
+
+    @Benchmark
+    public boolean longSkipList() {
+        stream.advance();
+        long key = stream.rawKey();
+        switch (stream.op()) {
+            case KeyStream.READ:
+                return primitive.contains(key);
+            case KeyStream.ADD:
+                primitive.add(key);
+                return true;
+            default:
+                primitive.remove(key);
+                return false;
+        }
+    }
+}
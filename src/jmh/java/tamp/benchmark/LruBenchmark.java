@@ -0,0 +1,71 @@
+package tamp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import tamp.lru.LazyLruMap;
+
+/**
+ * {@link LazyLruMap#get} under a uniform or skewed key distribution.
+ * The map is rebuilt on every iteration since its lru management is queued on a background thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LruBenchmark {
+
+    @Param({"1024"})
+    int capacity;
+
+    @Param({"65536"})
+    int keySpace;
+
+    @Param({"UNIFORM", "ZIPFIAN"})
+    KeyDistribution distribution;
+
+    LazyLruMap<Integer, Integer> map;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        map = new LazyLruMap<>(capacity);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws InterruptedException {
+        map.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Ops {
+        KeyStream stream;
+
+        @Setup(Level.Trial)
+        public void setup(final LruBenchmark benchmark, final ThreadParams threadParams) {
+            stream = new KeyStream(benchmark.distribution, benchmark.keySpace,
+                1.0, threadParams.getThreadIndex());
+        }
+    }
+
+    @Benchmark
+    public Integer get(final Ops ops) {
+        ops.stream.advance();
+        return map.get(ops.stream.key());
+    }
+}
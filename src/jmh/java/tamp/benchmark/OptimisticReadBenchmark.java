@@ -0,0 +1,95 @@
+package tamp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import tamp.set.LazyResizableHashSet;
+import tamp.set.SimpleConcurrentHashSet;
+import tamp.set.SimpleSet;
+
+/**
+ * Read mostly workload on the striped sets, with contains reading optimistically or under the read lock.
+ * java -cp target/benchmarks.jar tamp.benchmark.ThreadSweep OptimisticReadBenchmark 1,8,32
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OptimisticReadBenchmark {
+
+    @Param({"SimpleConcurrentHashSet", "LazyResizableHashSet"})
+    String implementation;
+
+    @Param({"true", "false"})
+    boolean optimisticReads;
+
+    @Param({"65536"})
+    int keySpace;
+
+    @Param({"0.95"})
+    double readRatio;
+
+    @Param({"UNIFORM", "ZIPFIAN"})
+    KeyDistribution distribution;
+
+    SimpleSet<Integer> set;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int capacity = keySpace * 4;
+        switch (implementation) {
+            case "SimpleConcurrentHashSet":
+                set = new SimpleConcurrentHashSet<>(capacity, optimisticReads);
+                break;
+            case "LazyResizableHashSet":
+                set = new LazyResizableHashSet<>(capacity, optimisticReads);
+                break;
+            default:
+                throw new IllegalArgumentException(implementation);
+        }
+        for (int i = 0; i < keySpace; i += 2) {
+            set.add(i);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Ops {
+        KeyStream stream;
+
+        @Setup(Level.Trial)
+        public void setup(final OptimisticReadBenchmark benchmark, final ThreadParams threadParams) {
+            stream = new KeyStream(benchmark.distribution, benchmark.keySpace,
+                benchmark.readRatio, threadParams.getThreadIndex());
+        }
+    }
+
+    @Benchmark
+    public boolean mixed(final Ops ops) {
+        KeyStream stream = ops.stream;
+        stream.advance();
+        switch (stream.op()) {
+            case KeyStream.READ:
+                return set.contains(stream.key());
+            case KeyStream.ADD:
+                set.add(stream.key());
+                return true;
+            default:
+                return set.remove(stream.key());
+        }
+    }
+}
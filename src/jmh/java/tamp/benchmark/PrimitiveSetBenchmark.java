@@ -0,0 +1,113 @@
+package tamp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tamp.set.IntHashSet;
+import tamp.set.SimpleHashSet;
+
+/**
+ * {@link IntHashSet} against {@link SimpleHashSet} of Integer.
+ * The keys come as primitive ids so boxing them is part of the cost of SimpleHashSet.
+ * The fill benchmarks build a set of keySpace elements from scratch, run them with -prof gc:
+ * gc.alloc.rate.norm is the number of bytes it takes to hold that many elements.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+public class PrimitiveSetBenchmark {
+
+    @Param({"1048576"})
+    int keySpace;
+
+    @Param({"0.5", "0.99"})
+    double readRatio;
+
+    @Param({"UNIFORM", "ZIPFIAN"})
+    KeyDistribution distribution;
+
+    SimpleHashSet<Integer> boxed;
+    IntHashSet primitive;
+    KeyStream stream;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        boxed = new SimpleHashSet<>(keySpace * 4);
+        primitive = new IntHashSet(keySpace);
+        for (int i = 0; i < keySpace; i += 2) {
+            boxed.add(i);
+            primitive.add(i);
+        }
+        stream = new KeyStream(distribution, keySpace, readRatio, 0);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+    public boolean simpleHashSet() {
+        stream.advance();
+        int key = stream.rawKey();
+        switch (stream.op()) {
+            case KeyStream.READ:
+                return boxed.contains(key);
+            case KeyStream.ADD:
+                boxed.add(key);
+                return true;
+            default:
+                return boxed.remove(key);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+    public boolean intHashSet() {
+        stream.advance();
+        int key = stream.rawKey();
+        switch (stream.op()) {
+            case KeyStream.READ:
+                return primitive.contains(key);
+            case KeyStream.ADD:
+                primitive.add(key);
+                return true;
+            default:
+                return primitive.remove(key);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public SimpleHashSet<Integer> fillSimpleHashSet() {
+        SimpleHashSet<Integer> set = new SimpleHashSet<>(keySpace * 4);
+        for (int i = 0; i < keySpace; i++) {
+            set.add(i);
+        }
+        return set;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public IntHashSet fillIntHashSet() {
+        IntHashSet set = new IntHashSet(keySpace);
+        for (int i = 0; i < keySpace; i++) {
+            set.add(i);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,147 @@
+package tamp.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tamp.queue.ConcurrentLockFreeQueue;
+import tamp.queue.ConcurrentRingBuffer;
+import tamp.queue.MpscArrayQueue;
+import tamp.queue.MpscLinkedQueue;
+import tamp.queue.SimpleArrayQueue;
+import tamp.queue.SimpleListQueue;
+import tamp.queue.SimpleQueue;
+import tamp.queue.SpscArrayQueue;
+
+/**
+ * Every {@link SimpleQueue}, measured as an add/get round trip on the same thread
+ * and as a producer / consumer handoff (scale the groups with -tg).
+ * batchRoundTrip goes through offerBatch / drainTo, its score is per element.
+ * The queues signal full / empty with a RuntimeException or a null, both are counted as a (failed) operation.
+ * The single consumer queues only run handoff with one consumer (the default groups) and roundTrip with -t 1,
+ * SpscArrayQueue handoff with one producer too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueBenchmark {
+
+    private static final Integer ELEMENT = 42;
+    private static final int BATCH = 256;
+
+    @Param({"SimpleArrayQueue", "SimpleListQueue", "ConcurrentRingBuffer", "ConcurrentLockFreeQueue",
+        "ConcurrentLockFreeQueueRecycling", "SpscArrayQueue", "MpscArrayQueue", "MpscLinkedQueue"})
+    String implementation;
+
+    @Param({"1024"})
+    int capacity;
+
+    SimpleQueue<Integer> queue;
+    Integer[] batch;
+
+    @Setup(Level.Iteration)
+    public void setup(final BenchmarkParams params) {
+        batch = new Integer[BATCH];
+        Arrays.fill(batch, ELEMENT);
+        switch (implementation) {
+            case "SimpleArrayQueue":
+                queue = new SimpleArrayQueue<>(capacity);
+                ThreadSafety.check(false, implementation, params);
+                break;
+            case "SimpleListQueue":
+                queue = new SimpleListQueue<>();
+                ThreadSafety.check(false, implementation, params);
+                break;
+            case "ConcurrentRingBuffer":
+                queue = new ConcurrentRingBuffer<>(capacity);
+                break;
+            case "ConcurrentLockFreeQueue":
+                queue = new ConcurrentLockFreeQueue<>(capacity);
+                break;
+            case "ConcurrentLockFreeQueueRecycling":
+                queue = new ConcurrentLockFreeQueue<>(capacity, true);
+                break;
+            case "SpscArrayQueue":
+                queue = new SpscArrayQueue<>(capacity);
+                ThreadSafety.check(isHandoff(params), implementation, params);
+                break;
+            case "MpscArrayQueue":
+                queue = new MpscArrayQueue<>(capacity);
+                ThreadSafety.check(isHandoff(params), implementation, params);
+                break;
+            case "MpscLinkedQueue":
+                queue = new MpscLinkedQueue<>();
+                ThreadSafety.check(isHandoff(params), implementation, params);
+                break;
+            default:
+                throw new IllegalArgumentException(implementation);
+        }
+    }
+
+    @Benchmark
+    public Integer roundTrip() {
+        add();
+        return get();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int batchRoundTrip(final Blackhole blackhole) {
+        queue.offerBatch(batch);
+        return queue.drainTo(blackhole::consume, BATCH);
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(1)
+    public void producer() {
+        add();
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(1)
+    public Integer consumer() {
+        return get();
+    }
+
+    private static boolean isHandoff(final BenchmarkParams params) {
+        return params.getBenchmark().endsWith("handoff");
+    }
+
+    private void add() {
+        try {
+            queue.add(ELEMENT);
+        } catch (RuntimeException e) {
+            // full
+        }
+    }
+
+    private Integer get() {
+        try {
+            return queue.get();
+        } catch (RuntimeException e) {
+            return null; // empty
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package tamp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import tamp.set.BucketizedCuckooHashSet;
+import tamp.set.ConcurrentCuckooHashSet;
+import tamp.set.CuckooHashSet;
+import tamp.set.LazyResizableHashSet;
+import tamp.set.LockFreeHashSet;
+import tamp.set.SimpleConcurrentHashSet;
+import tamp.set.SimpleHashSet;
+import tamp.set.SimpleSet;
+
+/**
+ * Mixed contains / add / remove workload over every {@link SimpleSet}.
+ * Throughput and SampleTime (which reports p99 / p999) are both measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SetBenchmark {
+
+    @Param({"SimpleHashSet", "SimpleConcurrentHashSet", "LazyResizableHashSet", "CuckooHashSet", "LockFreeHashSet",
+        "ConcurrentCuckooHashSet", "BucketizedCuckooHashSet"})
+    String implementation;
+
+    @Param({"65536"})
+    int keySpace;
+
+    @Param({"0.5", "0.9", "0.99"})
+    double readRatio;
+
+    @Param({"UNIFORM", "ZIPFIAN"})
+    KeyDistribution distribution;
+
+    SimpleSet<Integer> set;
+
+    @Setup(Level.Trial)
+    public void setup(final BenchmarkParams params) {
+        // sized so that no resize happens while measuring, resizes are measured on their own
+        int capacity = keySpace * 4;
+        switch (implementation) {
+            case "SimpleHashSet":
+                set = new SimpleHashSet<>(capacity);
+                ThreadSafety.check(false, implementation, params);
+                break;
+            case "SimpleConcurrentHashSet":
+                set = new SimpleConcurrentHashSet<>(capacity);
+                break;
+            case "LazyResizableHashSet":
+                set = new LazyResizableHashSet<>(capacity);
+                break;
+            case "CuckooHashSet":
+                set = new CuckooHashSet<>(capacity);
+                ThreadSafety.check(false, implementation, params);
+                break;
+            case "LockFreeHashSet":
+                set = new LockFreeHashSet<>(capacity);
+                break;
+            case "ConcurrentCuckooHashSet":
+                set = new ConcurrentCuckooHashSet<>(capacity);
+                break;
+            case "BucketizedCuckooHashSet":
+                set = new BucketizedCuckooHashSet<>(capacity);
+                ThreadSafety.check(false, implementation, params);
+                break;
+            default:
+                throw new IllegalArgumentException(implementation);
+        }
+        for (int i = 0; i < keySpace; i += 2) {
+            set.add(i);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Ops {
+        KeyStream stream;
+
+        @Setup(Level.Trial)
+        public void setup(final SetBenchmark benchmark, final ThreadParams threadParams) {
+            stream = new KeyStream(benchmark.distribution, benchmark.keySpace,
+                benchmark.readRatio, threadParams.getThreadIndex());
+        }
+    }
+
+    @Benchmark
+    public boolean mixed(final Ops ops) {
+        KeyStream stream = ops.stream;
+        stream.advance();
+        switch (stream.op()) {
+            case KeyStream.READ:
+                return set.contains(stream.key());
+            case KeyStream.ADD:
+                set.add(stream.key());
+                return true;
+            default:
+                return set.remove(stream.key());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package tamp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import tamp.skiplist.GeometricLevelGenerator;
+import tamp.skiplist.LockFreeSkipList;
+import tamp.skiplist.SimpleSkipList;
+import tamp.skiplist.SkipList;
+
+/**
+ * Mixed contains / add / remove workload over the {@link SkipList} implementations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SkipListBenchmark {
+
+    @Param({"SimpleSkipList", "LockFreeSkipList"})
+    String implementation;
+
+    @Param({"65536"})
+    int keySpace;
+
+    @Param({"0.5", "0.9", "0.99"})
+    double readRatio;
+
+    @Param({"UNIFORM", "ZIPFIAN"})
+    KeyDistribution distribution;
+
+    @Param({"0.5", "0.25"})
+    double promotionProbability;
+
+    SkipList<Integer> skipList;
+
+    @Setup(Level.Trial)
+    public void setup(final BenchmarkParams params) {
+        GeometricLevelGenerator levelGenerator = new GeometricLevelGenerator(promotionProbability);
+        int levels = 32 - Integer.numberOfLeadingZeros(keySpace);
+        switch (implementation) {
+            case "SimpleSkipList":
+                skipList = new SimpleSkipList<>(levels, levelGenerator);
+                ThreadSafety.check(false, implementation, params);
+                break;
+            case "LockFreeSkipList":
+                skipList = new LockFreeSkipList<>(levels, levelGenerator);
+                break;
+            default:
+                throw new IllegalArgumentException(implementation);
+        }
+        for (int i = 0; i < keySpace; i += 2) {
+            skipList.add(i);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Ops {
+        KeyStream stream;
+
+        @Setup(Level.Trial)
+        public void setup(final SkipListBenchmark benchmark, final ThreadParams threadParams) {
+            stream = new KeyStream(benchmark.distribution, benchmark.keySpace,
+                benchmark.readRatio, threadParams.getThreadIndex());
+        }
+    }
+
+    @Benchmark
+    public boolean mixed(final Ops ops) {
+        KeyStream stream = ops.stream;
+        stream.advance();
+        switch (stream.op()) {
+            case KeyStream.READ:
+                return skipList.contains(stream.key());
+            case KeyStream.ADD:
+                skipList.add(stream.key());
+                return true;
+            default:
+                skipList.remove(stream.key());
+                return false;
+        }
+    }
+}
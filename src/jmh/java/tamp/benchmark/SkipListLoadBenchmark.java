@@ -0,0 +1,62 @@
+package tamp.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tamp.skiplist.SimpleSkipList;
+import tamp.skiplist.SkipList;
+
+/**
+ * Time to load a sorted snapshot, one add at a time or with {@link SkipList#fromSorted}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+public class SkipListLoadBenchmark {
+
+    @Param({"1000000"})
+    int size;
+
+    List<Integer> sorted;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        sorted = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sorted.add(i);
+        }
+    }
+
+    @Benchmark
+    public SkipList<Integer> addOneByOne() {
+        SkipList<Integer> skipList = new SimpleSkipList<>();
+        for (Integer element : sorted) {
+            skipList.add(element);
+        }
+        return skipList;
+    }
+
+    @Benchmark
+    public SkipList<Integer> fromSorted() {
+        return SkipList.fromSorted(sorted.iterator());
+    }
+}
@@ -0,0 +1,21 @@
+package tamp.benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+final class ThreadSafety {
+
+    private ThreadSafety() {
+    }
+
+    /**
+     * Single threaded structures can only be measured with one thread,
+     * fail the trial instead of reporting numbers of a corrupted structure.
+     */
+    static void check(final boolean threadSafe,
+        final String implementation,
+        final BenchmarkParams params) {
+        if (!threadSafe && params.getThreads() > 1) {
+            throw new IllegalStateException(implementation + " is not thread safe, run it with -t 1");
+        }
+    }
+}
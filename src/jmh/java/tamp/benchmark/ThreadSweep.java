@@ -0,0 +1,43 @@
+package tamp.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks at 1, 2, 4 ... maxThreads threads, or at the given list of thread counts.
+ * java -cp target/benchmarks.jar tamp.benchmark.ThreadSweep [includeRegex] [maxThreads | threads,threads...]
+ */
+public class ThreadSweep {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "tamp.benchmark.*";
+        List<Integer> threadCounts = new ArrayList<>();
+        if (args.length > 1 && args[1].contains(",")) {
+            for (String threads : args[1].split(",")) {
+                threadCounts.add(Integer.parseInt(threads.trim()));
+            }
+        } else {
+            int maxThreads = args.length > 1
+                ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                threadCounts.add(threads);
+            }
+        }
+
+        for (int threads : threadCounts) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(include)
+                .threads(threads)
+                .result("jmh-" + threads + "-threads.json")
+                .resultFormat(ResultFormatType.JSON);
+            new Runner(options.build()).run();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package tamp.counter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter spread over several cells, as LongAdder: each thread adds to the cell its id maps to,
+ * so threads on different cells never write to the same cache line, and reading means summing the cells.
+ *  - Each cell is a long alone on its 128 bytes (two cache lines, for the adjacent line prefetcher).
+ *  - The low 40 bits of a cell are its share of the total, modulo 2^40, the high 24 bits count its updates,
+ *  so a cell changes on every update even when the count comes back to the same value.
+ *  - estimate() sums the cells one at a time, without a guarantee that they were all read at the same time.
+ *  sum() reads all the cells twice and starts over until both reads are the same: nothing changed in between,
+ *  so the total is exact at that time. Writers never wait for it, it retries while they keep updating.
+ *  - addAndSample tells the caller once in a while to look at the total, so that the structures checking
+ *  a threshold on every update (resize) do not read every cell on every update.
+ * The total has to stay within +/- 2^39.
+ */
+public class StripedCounter {
+
+    private static final int PADDING = 16; // longs, 128 bytes
+    private static final int VALUE_BITS = 40;
+    private static final long UPDATE = 1L << VALUE_BITS;
+    private static final int MAX_SAMPLING_SHIFT = 6;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    public StripedCounter() {
+        this(2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param stripes number of cells, rounded up to a power of 2
+     */
+    public StripedCounter(final int stripes) {
+        int numberOfCells = Integer.highestOneBit(Math.max(stripes, 1) * 2 - 1);
+        this.mask = numberOfCells - 1;
+        this.cells = new AtomicLongArray(numberOfCells * PADDING);
+    }
+
+    public void add(final long x) {
+        cells.getAndAdd(cell(), UPDATE + x);
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void decrement() {
+        add(-1);
+    }
+
+    /**
+     * Adds x, then tells if the caller should check the total this time:
+     * once every 2^samplingShift updates of the cell of the calling thread.
+     */
+    public boolean addAndSample(final long x, final int samplingShift) {
+        long before = cells.getAndAdd(cell(), UPDATE + x);
+        return ((before >>> VALUE_BITS) & ((1 << samplingShift) - 1)) == 0;
+    }
+
+    /**
+     * Sampling shift for a threshold: if every cell is up to 2^shift updates ahead of the last check,
+     * the threshold is overshot by less than 1/64 of it.
+     */
+    public int samplingShift(final long threshold) {
+        long slack = threshold / 64 / (mask + 1);
+        int shift = slack <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(slack);
+        return Math.min(shift, MAX_SAMPLING_SHIFT);
+    }
+
+    /**
+     * Sum of the cells as they are read, each one at a different time.
+     */
+    public long estimate() {
+        long total = 0;
+        for (int i = 0; i <= mask; i++) {
+            total += cells.get(i * PADDING);
+        }
+        return value(total);
+    }
+
+    /**
+     * Exact total at some point during the call.
+     */
+    public long sum() {
+        long[] previous = new long[mask + 1];
+        long[] current = new long[mask + 1];
+        collect(previous);
+        while (true) {
+            collect(current);
+            boolean changed = false;
+            long total = 0;
+            for (int i = 0; i <= mask; i++) {
+                changed |= current[i] != previous[i];
+                total += current[i];
+            }
+            if (!changed) {
+                return value(total);
+            }
+            long[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(sum());
+    }
+
+    private void collect(final long[] snapshot) {
+        for (int i = 0; i <= mask; i++) {
+            snapshot[i] = cells.get(i * PADDING);
+        }
+    }
+
+    private int cell() {
+        long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return ((int) (h >>> 32) & mask) * PADDING;
+    }
+
+    /**
+     * The low 40 bits of the sum of the cells are the total modulo 2^40, sign extended.
+     */
+    private static long value(final long cellsTotal) {
+        return cellsTotal << (64 - VALUE_BITS) >> (64 - VALUE_BITS);
+    }
+}
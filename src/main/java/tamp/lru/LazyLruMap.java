@@ -5,6 +5,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.Maps;
@@ -15,15 +16,19 @@ import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import tamp.metrics.Metrics;
+
 /**
  * Implementation based on a classic concurrent hashmap.
  * The management of the lru (eg: how to place element in queue / how to evict element) is done asynchornously.
+ * With Metrics, reports hits and misses as get sees them, and evictions once they are done.
  */
 public class LazyLruMap<K, V> implements LruMap<K, V> {
 
     final int capacity;
     final ConcurrentMap<K, V> map;
     final LruManager<K> lruManager;
+    final Metrics metrics;
 
     final ListeningExecutorService lruManagerService;
     final ThreadFactory lruManagerFactory = new ThreadFactoryBuilder()
@@ -36,7 +41,12 @@ public class LazyLruMap<K, V> implements LruMap<K, V> {
     final ExecutorService evictatorService;
 
     public LazyLruMap(int capacity) {
+        this(capacity, Metrics.NONE);
+    }
+
+    public LazyLruMap(int capacity, Metrics metrics) {
         this.capacity = capacity;
+        this.metrics = metrics;
         lruManager = new LruManager<>(capacity);
         map = Maps.newConcurrentMap();
 
@@ -47,7 +57,14 @@ public class LazyLruMap<K, V> implements LruMap<K, V> {
 
     @Override
     public V get(final K k) {
-        V v = map.containsKey(k) ? map.get(k) : fetch(k);
+        V v;
+        if (map.containsKey(k)) {
+            metrics.hit();
+            v = map.get(k);
+        } else {
+            metrics.miss();
+            v = fetch(k);
+        }
         ListenableFuture<Optional<K>> evictedEntry = lruManagerService
             .submit(lruManager.add(k));
         Futures.addCallback(evictedEntry, new FutureCallback<Optional<K>>(){
@@ -62,6 +79,7 @@ public class LazyLruMap<K, V> implements LruMap<K, V> {
                     return;
                 }
                 map.remove(entry.get());
+                metrics.eviction();
             }
         }, evictatorService);
         return v;
@@ -72,6 +90,15 @@ public class LazyLruMap<K, V> implements LruMap<K, V> {
         return lruManager.queueSet.toString();
     }
 
+    /**
+     * Lets the pending lru updates go through before stopping the background threads.
+     */
+    public void close() throws InterruptedException {
+        lruManagerService.shutdown();
+        lruManagerService.awaitTermination(1, TimeUnit.MINUTES);
+        evictatorService.shutdown();
+    }
+
     @Override
     public void finalize() {
         lruManagerService.shutdown();
@@ -0,0 +1,53 @@
+package tamp.metrics;
+
+/**
+ * Where the structures report what they are doing, all the methods do nothing by default.
+ * A structure built without metrics gets NONE: as long as no other implementation is loaded the calls are
+ * inlined to nothing by the JIT, and anything that would cost something to measure, as reading the clock
+ * around a lock, is only done if enabled() is true.
+ */
+public interface Metrics {
+
+    public static final Metrics NONE = new Metrics() {
+    };
+
+    public default boolean enabled() {
+        return false;
+    }
+
+    /**
+     * Time spent waiting for a lock that was not free.
+     */
+    public default void lockWait(int stripe, long nanos) {
+    }
+
+    /**
+     * Number of elements or slots looked at to find an element (chain length, probe length).
+     */
+    public default void probe(int length) {
+    }
+
+    /**
+     * Number of elements moved to make room for one in a cuckoo table.
+     */
+    public default void displacement(int pathLength) {
+    }
+
+    public default void resize(long nanos) {
+    }
+
+    /**
+     * A compare and set lost against another thread, and the operation is retried.
+     */
+    public default void casFailure() {
+    }
+
+    public default void hit() {
+    }
+
+    public default void miss() {
+    }
+
+    public default void eviction() {
+    }
+}
@@ -0,0 +1,256 @@
+package tamp.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Metrics that are recorded, in LongAdders so that recording does not become the contention point
+ * (not StripedCounters: nanos add up past their 2^39 in minutes).
+ * Read them with snapshot(), or over JMX once registered.
+ * The lock waits are also kept per stripe, stripes beyond the first 1024 share the slots of the first ones.
+ */
+public class MetricsRecorder implements Metrics, MetricsRecorderMBean {
+
+    private static final int MAX_STRIPES = 1024;
+
+    private final AtomicLongArray lockWaitPerStripe;
+    private final LongAdder lockWaits;
+    private final LongAdder lockWaitNanos;
+    private final Distribution probes;
+    private final Distribution displacements;
+    private final Distribution resizes;
+    private final LongAdder casFailures;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    public MetricsRecorder() {
+        this(MAX_STRIPES);
+    }
+
+    /**
+     * @param stripes number of lock stripes of the structure, to keep their waits apart
+     */
+    public MetricsRecorder(final int stripes) {
+        lockWaitPerStripe = new AtomicLongArray(Math.max(Math.min(stripes, MAX_STRIPES), 1));
+        lockWaits = new LongAdder();
+        lockWaitNanos = new LongAdder();
+        probes = new Distribution();
+        displacements = new Distribution();
+        resizes = new Distribution();
+        casFailures = new LongAdder();
+        hits = new LongAdder();
+        misses = new LongAdder();
+        evictions = new LongAdder();
+    }
+
+    /**
+     * Registers the recorder with the platform MBean server as tamp:type=name.
+     */
+    public MetricsRecorder register(final String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("tamp:type=" + name));
+        } catch (JMException e) {
+            throw new RuntimeException(e);
+        }
+        return this;
+    }
+
+    public void unregister(final String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName("tamp:type=" + name));
+        } catch (JMException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(getLockWaits(), getLockWaitNanos(), getLockWaitNanosPerStripe(),
+            probes.count.sum(), probes.total.sum(), probes.max.get(),
+            displacements.count.sum(), displacements.total.sum(), displacements.max.get(),
+            resizes.count.sum(), resizes.total.sum(), resizes.max.get(),
+            getCasFailures(), getHits(), getMisses(), getEvictions());
+    }
+
+    @Override
+    public boolean enabled() {
+        return true;
+    }
+
+    @Override
+    public void lockWait(final int stripe, final long nanos) {
+        lockWaitPerStripe.addAndGet(stripe % lockWaitPerStripe.length(), nanos);
+        lockWaits.increment();
+        lockWaitNanos.add(nanos);
+    }
+
+    @Override
+    public void probe(final int length) {
+        probes.record(length);
+    }
+
+    @Override
+    public void displacement(final int pathLength) {
+        displacements.record(pathLength);
+    }
+
+    @Override
+    public void resize(final long nanos) {
+        resizes.record(nanos);
+    }
+
+    @Override
+    public void casFailure() {
+        casFailures.increment();
+    }
+
+    @Override
+    public void hit() {
+        hits.increment();
+    }
+
+    @Override
+    public void miss() {
+        misses.increment();
+    }
+
+    @Override
+    public void eviction() {
+        evictions.increment();
+    }
+
+    @Override
+    public long getLockWaits() {
+        return lockWaits.sum();
+    }
+
+    @Override
+    public long getLockWaitNanos() {
+        return lockWaitNanos.sum();
+    }
+
+    @Override
+    public long[] getLockWaitNanosPerStripe() {
+        long[] perStripe = new long[lockWaitPerStripe.length()];
+        for (int i = 0; i < perStripe.length; i++) {
+            perStripe[i] = lockWaitPerStripe.get(i);
+        }
+        return perStripe;
+    }
+
+    @Override
+    public double getAverageProbeLength() {
+        return probes.average();
+    }
+
+    @Override
+    public long getMaxProbeLength() {
+        return probes.max.get();
+    }
+
+    @Override
+    public double getAverageDisplacementPathLength() {
+        return displacements.average();
+    }
+
+    @Override
+    public long getMaxDisplacementPathLength() {
+        return displacements.max.get();
+    }
+
+    @Override
+    public long getResizes() {
+        return resizes.count.sum();
+    }
+
+    @Override
+    public long getResizeNanos() {
+        return resizes.total.sum();
+    }
+
+    @Override
+    public long getMaxResizeNanos() {
+        return resizes.max.get();
+    }
+
+    @Override
+    public long getCasFailures() {
+        return casFailures.sum();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public double getHitRate() {
+        long hits = getHits();
+        long lookups = hits + getMisses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Starts over from 0, updates racing with it may be lost.
+     */
+    @Override
+    public void reset() {
+        for (int i = 0; i < lockWaitPerStripe.length(); i++) {
+            lockWaitPerStripe.set(i, 0);
+        }
+        lockWaits.reset();
+        lockWaitNanos.reset();
+        probes.reset();
+        displacements.reset();
+        resizes.reset();
+        casFailures.reset();
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    /**
+     * Count, total and max of the recorded values.
+     * The max is only written when a larger value comes, which after a while is almost never.
+     */
+    private static final class Distribution {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(final long value) {
+            count.increment();
+            total.add(value);
+            long currentMax = max.get();
+            while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+                currentMax = max.get();
+            }
+        }
+
+        double average() {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) total.sum() / n;
+        }
+
+        void reset() {
+            count.reset();
+            total.reset();
+            max.set(0);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package tamp.metrics;
+
+/**
+ * What a MetricsRecorder shows over JMX.
+ */
+public interface MetricsRecorderMBean {
+
+    public long getLockWaits();
+
+    public long getLockWaitNanos();
+
+    public long[] getLockWaitNanosPerStripe();
+
+    public double getAverageProbeLength();
+
+    public long getMaxProbeLength();
+
+    public double getAverageDisplacementPathLength();
+
+    public long getMaxDisplacementPathLength();
+
+    public long getResizes();
+
+    public long getResizeNanos();
+
+    public long getMaxResizeNanos();
+
+    public long getCasFailures();
+
+    public long getHits();
+
+    public long getMisses();
+
+    public long getEvictions();
+
+    public double getHitRate();
+
+    public void reset();
+}
@@ -0,0 +1,81 @@
+package tamp.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Values of a MetricsRecorder at some point, each counter read at a slightly different time.
+ */
+public final class MetricsSnapshot {
+
+    public final long lockWaits;
+    public final long lockWaitNanos;
+    private final long[] lockWaitNanosPerStripe;
+    public final long probes;
+    public final long totalProbeLength;
+    public final long maxProbeLength;
+    public final long displacements;
+    public final long totalDisplacementPathLength;
+    public final long maxDisplacementPathLength;
+    public final long resizes;
+    public final long resizeNanos;
+    public final long maxResizeNanos;
+    public final long casFailures;
+    public final long hits;
+    public final long misses;
+    public final long evictions;
+
+    MetricsSnapshot(long lockWaits, long lockWaitNanos, long[] lockWaitNanosPerStripe,
+                    long probes, long totalProbeLength, long maxProbeLength,
+                    long displacements, long totalDisplacementPathLength, long maxDisplacementPathLength,
+                    long resizes, long resizeNanos, long maxResizeNanos,
+                    long casFailures, long hits, long misses, long evictions) {
+        this.lockWaits = lockWaits;
+        this.lockWaitNanos = lockWaitNanos;
+        this.lockWaitNanosPerStripe = lockWaitNanosPerStripe;
+        this.probes = probes;
+        this.totalProbeLength = totalProbeLength;
+        this.maxProbeLength = maxProbeLength;
+        this.displacements = displacements;
+        this.totalDisplacementPathLength = totalDisplacementPathLength;
+        this.maxDisplacementPathLength = maxDisplacementPathLength;
+        this.resizes = resizes;
+        this.resizeNanos = resizeNanos;
+        this.maxResizeNanos = maxResizeNanos;
+        this.casFailures = casFailures;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    public long lockWaitNanos(int stripe) {
+        return lockWaitNanosPerStripe[stripe % lockWaitNanosPerStripe.length];
+    }
+
+    public double averageProbeLength() {
+        return probes == 0 ? 0 : (double) totalProbeLength / probes;
+    }
+
+    public double averageDisplacementPathLength() {
+        return displacements == 0 ? 0 : (double) totalDisplacementPathLength / displacements;
+    }
+
+    public double hitRate() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    public double evictionRate() {
+        return hits + misses == 0 ? 0 : (double) evictions / (hits + misses);
+    }
+
+    @Override
+    public String toString() {
+        return "lockWaits=" + lockWaits + " (" + lockWaitNanos + "ns, per stripe "
+            + Arrays.toString(lockWaitNanosPerStripe) + ")"
+            + ", probes=" + probes + " (avg " + averageProbeLength() + ", max " + maxProbeLength + ")"
+            + ", displacements=" + displacements + " (avg " + averageDisplacementPathLength()
+            + ", max " + maxDisplacementPathLength + ")"
+            + ", resizes=" + resizes + " (" + resizeNanos + "ns, max " + maxResizeNanos + "ns)"
+            + ", casFailures=" + casFailures
+            + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions;
+    }
+}
@@ -1,80 +1,337 @@
 package tamp.queue;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
 
+import tamp.counter.StripedCounter;
+import tamp.metrics.Metrics;
+
+/**
+ * Michael and Scott lock-free queue (TAMP chapter 10.5), bounded.
+ *  - head is a dummy node, get moves head to its next with a CAS and returns the value of the new head.
+ *  add links the new node after the last one with a CAS on its next, then swings tail; both help a lagging tail.
+ *  - next, head and tail are plain volatile fields changed through field updaters, so a node is one object.
+ *  - The capacity is a count of reserved places: add reserves one with a CAS before linking,
+ *  get gives it back once its node is out, so the queue never holds more than capacity elements.
+ *  An exact bound needs that single CAS, so it is kept apart from the size, which is a StripedCounter:
+ *  an unbounded queue (capacity Integer.MAX_VALUE) reserves nothing and its threads never write the same counter.
+ *  - Optionally nodes are recycled, each thread keeping a pool of the nodes it allocated.
+ *  Reusing a node that another thread still looks at breaks the CASes (ABA), so every thread publishes
+ *  the nodes it is working on (hazard pointers, Michael 2004). A node taken out by get is only handed back
+ *  to the pool of its owner once no thread publishes it, checked in batches.
+ *  The owner takes back all its returned nodes at once with a getAndSet, so the pool itself has no ABA.
+ *  Meant for long lived threads: a thread that dies keeps its pool.
+ *  - offerBatch reserves the places and links a chain of nodes built beforehand with one CAS,
+ *  drainTo moves head over up to max nodes with one CAS.
+ * With Metrics, reports every compare and set lost to another thread.
+ */
 public class ConcurrentLockFreeQueue<T> implements SimpleQueue<T> {
 
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ConcurrentLockFreeQueue, SimpleNode> HEAD =
+        AtomicReferenceFieldUpdater.newUpdater(ConcurrentLockFreeQueue.class, SimpleNode.class, "head");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ConcurrentLockFreeQueue, SimpleNode> TAIL =
+        AtomicReferenceFieldUpdater.newUpdater(ConcurrentLockFreeQueue.class, SimpleNode.class, "tail");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<SimpleNode, SimpleNode> NEXT =
+        AtomicReferenceFieldUpdater.newUpdater(SimpleNode.class, SimpleNode.class, "next");
+
+    private static final int SCAN_THRESHOLD = 64; // retired nodes, plus 2 per thread
+
     volatile SimpleNode<T> head;
-    volatile AtomicReference<SimpleNode<T>> tail;
+    volatile SimpleNode<T> tail;
     final int capacity;
-    AtomicInteger size;
+    final Metrics metrics;
+    final StripedCounter size;
+    private final AtomicInteger reserved; // null when unbounded
+    private final boolean recycleNodes;
+    private final ThreadLocal<NodePool<T>> pools;
+    private final List<NodePool<T>> allPools;
 
     public ConcurrentLockFreeQueue(int capacity) {
+        this(capacity, false, Metrics.NONE);
+    }
+
+    public ConcurrentLockFreeQueue(int capacity, Metrics metrics) {
+        this(capacity, false, metrics);
+    }
+
+    public ConcurrentLockFreeQueue(int capacity, boolean recycleNodes) {
+        this(capacity, recycleNodes, Metrics.NONE);
+    }
+
+    /**
+     * @param recycleNodes reuse the nodes instead of allocating one per add,
+     *                     at the cost of publishing the nodes in use on every operation
+     */
+    public ConcurrentLockFreeQueue(int capacity, boolean recycleNodes, Metrics metrics) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
         this.capacity = capacity;
+        this.metrics = metrics;
+        this.recycleNodes = recycleNodes;
+        this.size = new StripedCounter();
+        this.reserved = capacity == Integer.MAX_VALUE ? null : new AtomicInteger();
+        this.allPools = new CopyOnWriteArrayList<>();
+        this.pools = ThreadLocal.withInitial(() -> {
+            NodePool<T> pool = new NodePool<>();
+            allPools.add(pool);
+            return pool;
+        });
         head = new SimpleNode<T>(null); // head here is just as a dummy marker
-        head.next = new AtomicReference<SimpleNode<T>>();
-        tail = new AtomicReference<ConcurrentLockFreeQueue.SimpleNode<T>>(head);
-        size = new AtomicInteger();
+        tail = head;
     }
 
+    /**
+     * @throws QueueFullException if the queue is full
+     */
     @Override
     public void add(T value) {
-        if (size.get() == capacity) {
-            throw new RuntimeException();
+        if (reserve(1) == 0) {
+            throw new QueueFullException();
         }
+        size.increment();
+        NodePool<T> pool = recycleNodes ? pools.get() : null;
+        SimpleNode<T> newNode = newNode(pool, value);
+        link(newNode, newNode, pool);
+    }
 
-        SimpleNode<T> newNode = new SimpleNode<>(value);
+    /**
+     * The nodes of the batch are chained before being linked after the last node all at once.
+     */
+    @Override
+    public int offerBatch(T[] batch) {
+        int count = reserve(batch.length);
+        if (count == 0) {
+            return 0;
+        }
+        size.add(count);
+        NodePool<T> pool = recycleNodes ? pools.get() : null;
+        SimpleNode<T> first = newNode(pool, batch[0]);
+        SimpleNode<T> last = first;
+        for (int i = 1; i < count; i++) {
+            SimpleNode<T> node = newNode(pool, batch[i]);
+            NEXT.lazySet(last, node);
+            last = node;
+        }
+        link(first, last, pool);
+        return count;
+    }
 
+    /**
+     * @return null if the queue is empty
+     */
+    @Override
+    public T get() {
+        NodePool<T> pool = recycleNodes ? pools.get() : null;
         while (true) {
-            SimpleNode<T> tailRef = tail.get();
-            SimpleNode<T> afterTail = tailRef.next.get();
-            if (tailRef == tail.get()) {
-                if (afterTail == null) {
-                    if (tailRef.next.compareAndSet(afterTail, newNode)) {
-                        tail.compareAndSet(tailRef, newNode);
-                        size.getAndIncrement();
-                        return;
+            SimpleNode<T> first = head;
+            if (pool != null && !pool.protect(0, first, this)) {
+                continue;
+            }
+            SimpleNode<T> last = tail;
+            SimpleNode<T> next = first.next;
+            if (pool != null) {
+                pool.hazards.set(1, next); // next stays reachable as long as first is the head
+            }
+            if (first != head) {
+                continue;
+            }
+            if (first == last) {
+                if (next == null) {
+                    if (pool != null) {
+                        pool.clear();
                     }
-                } else {
-                    tail.compareAndSet(tailRef, afterTail);
+                    return null;
+                }
+                TAIL.compareAndSet(this, last, next); // an add is half way, finish it
+                continue;
+            }
+            T value = next.value;
+            if (HEAD.compareAndSet(this, first, next)) {
+                next.value = null; // next is the dummy now
+                size.decrement();
+                release(1);
+                if (pool != null) {
+                    pool.clear();
+                    pool.retire(first, allPools);
                 }
+                return value;
             }
+            metrics.casFailure();
         }
-
     }
 
+    /**
+     * Moves head over up to max nodes, never past the tail it read, with one CAS.
+     * Once head is moved the nodes before end belong to this thread alone, but end is the new dummy:
+     * another get can move past it and retire it, so it stays published until its value is read.
+     */
     @Override
-    public T get() {
-        /*if (size.getAndDecrement() == 0) {
-            throw new RuntimeException();
+    public int drainTo(Consumer<? super T> consumer, int max) {
+        if (max <= 0) {
+            return 0;
         }
-        SimpleNode<T> getNode = head.next;
-        head.next = getNode.next;
+        NodePool<T> pool = recycleNodes ? pools.get() : null;
+        while (true) {
+            SimpleNode<T> first = head;
+            if (pool != null && !pool.protect(0, first, this)) {
+                continue;
+            }
+            SimpleNode<T> last = tail;
+            SimpleNode<T> next = first.next;
+            if (first != head) {
+                continue;
+            }
+            if (first == last) {
+                if (next == null) {
+                    if (pool != null) {
+                        pool.clear();
+                    }
+                    return 0;
+                }
+                TAIL.compareAndSet(this, last, next);
+                continue;
+            }
+            // while first is the head (and so not recycled) the nodes after it are in the queue
+            SimpleNode<T> end = next;
+            int count = 1;
+            while (count < max && end != last && end.next != null) {
+                end = end.next;
+                count++;
+            }
+            if (pool != null) {
+                pool.hazards.set(1, end); // in the queue as long as first is the head, which the CAS checks
+            }
+            if (!HEAD.compareAndSet(this, first, end)) {
+                metrics.casFailure();
+                continue;
+            }
+            size.add(-count);
+            release(count);
+            T endValue = end.value;
+            end.value = null; // end is the dummy now
+            if (pool != null) {
+                pool.clear();
+            }
+            SimpleNode<T> node = first;
+            for (int i = 0; i < count; i++) {
+                SimpleNode<T> following = node.next;
+                T value = following == end ? endValue : following.value;
+                if (pool != null) {
+                    pool.retire(node, allPools);
+                }
+                node = following;
+                consumer.accept(value);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Counts an element from the time its add reserved a place, so it never goes below 0.
+     */
+    public int size() {
+        return (int) size.sum();
+    }
 
-        return getNode.value;
-        */
-        return null;
+    public int capacity() {
+        return capacity;
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        SimpleNode<T> curr = head.next.get();
+        SimpleNode<T> curr = head.next;
         while (curr != null) {
             sb.append(curr.value + " ");
-            curr = curr.next.get();
+            curr = curr.next;
         }
         return sb.toString();
     }
 
+    /**
+     * Takes up to wanted places at once.
+     * @return the number of places taken, 0 if they are all taken
+     */
+    private int reserve(int wanted) {
+        if (reserved == null) {
+            return wanted;
+        }
+        while (true) {
+            int current = reserved.get();
+            int count = Math.min(wanted, capacity - current);
+            if (count <= 0) {
+                return 0;
+            }
+            if (reserved.compareAndSet(current, current + count)) {
+                return count;
+            }
+            metrics.casFailure();
+        }
+    }
+
+    private void release(int count) {
+        if (reserved != null) {
+            reserved.addAndGet(-count);
+        }
+    }
+
+    /**
+     * Links the chain from first to last after the last node of the queue.
+     */
+    private void link(SimpleNode<T> first, SimpleNode<T> last, NodePool<T> pool) {
+        while (true) {
+            SimpleNode<T> tailRef = tail;
+            if (pool != null && !pool.protect(0, tailRef, this)) {
+                continue;
+            }
+            SimpleNode<T> afterTail = tailRef.next;
+            if (tailRef == tail) {
+                if (afterTail == null) {
+                    if (NEXT.compareAndSet(tailRef, null, first)) {
+                        TAIL.compareAndSet(this, tailRef, last);
+                        if (pool != null) {
+                            pool.clear();
+                        }
+                        return;
+                    }
+                    metrics.casFailure();
+                } else {
+                    TAIL.compareAndSet(this, tailRef, afterTail);
+                }
+            }
+        }
+    }
+
+    private SimpleNode<T> newNode(NodePool<T> pool, T value) {
+        return pool == null ? new SimpleNode<>(value) : pool.allocate(value);
+    }
+
     public static class SimpleNode<T> {
-        final T value;
-        AtomicReference<SimpleNode<T>> next;
+        T value;
+        volatile SimpleNode<T> next;
+        final NodePool<T> owner; // null if not recycled
+        SimpleNode<T> nextFree; // link in the pools
 
         public SimpleNode(T value) {
+            this(value, null);
+        }
+
+        SimpleNode(T value, NodePool<T> owner) {
             this.value = value;
-            this.next = new AtomicReference<ConcurrentLockFreeQueue.SimpleNode<T>>(null);
+            this.owner = owner;
         }
 
         @Override
@@ -104,74 +361,84 @@ public class ConcurrentLockFreeQueue<T> implements SimpleQueue<T> {
 
     }
 
-    public static void main(String[] args) throws InterruptedException {
-        ConcurrentLockFreeQueue<Integer> q = new ConcurrentLockFreeQueue<Integer>(4000);
-        Filler f1 = new Filler(q, 1);
-        Filler f2 = new Filler(q, 2);
-        Filler f3 = new Filler(q, 3);
-        Filler f4 = new Filler(q, 4);
-        Filler f5 = new Filler(q, 5);
-        Filler f6 = new Filler(q, 6);
-        Filler f7 = new Filler(q, 7);
-        Filler f8 = new Filler(q, 8);
-        Filler f9 = new Filler(q, 9);
-        Filler f10 = new Filler(q, 10);
-        Filler f11 = new Filler(q, 11);
-        Filler f12 = new Filler(q, 12);
-
-        f1.start();
-        f2.start();
-        f3.start();
-        f4.start();
-        f5.start();
-        f6.start();
-        f7.start();
-        f8.start();
-        f9.start();
-        f10.start();
-        f11.start();
-        f12.start();
-
-        Thread.sleep(500);
-        System.out.println(q.size.get());
-        System.out.println(q);
-    }
-
-    public static class Filler extends Thread {
-
-        final int n;
-        final ConcurrentLockFreeQueue<Integer> q;
-        final int maxEnq = 50;
-        public Filler(ConcurrentLockFreeQueue<Integer> q,
-            int n) {
-            this.q = q;
-            this.n = n;
-        }
+    /**
+     * Nodes of one thread: the ones it can reuse, the ones other threads gave back,
+     * the ones it took out of the queue and are waiting for no thread to publish them,
+     * and the two nodes it publishes.
+     */
+    static final class NodePool<T> {
+        final AtomicReferenceArray<SimpleNode<T>> hazards = new AtomicReferenceArray<>(2);
+        final AtomicReference<SimpleNode<T>> returned = new AtomicReference<>();
+        private SimpleNode<T> free;
+        private final List<SimpleNode<T>> retired = new ArrayList<>();
+        private final Set<SimpleNode<T>> inUse = Collections.newSetFromMap(new IdentityHashMap<>());
 
-        @Override
-        public void run() {
-            int i = 0;
-            while (i < maxEnq) {
-                i++;
-                q.add(n);
+        SimpleNode<T> allocate(T value) {
+            if (free == null) {
+                free = returned.getAndSet(null);
+            }
+            if (free == null) {
+                return new SimpleNode<>(value, this);
             }
+            SimpleNode<T> node = free;
+            free = node.nextFree;
+            node.nextFree = null;
+            node.value = value;
+            node.next = null;
+            return node;
         }
-    }
 
-    public static class Getter extends Thread {
-
-        final ConcurrentLockFreeQueue<Integer> q;
+        /**
+         * Publishes the node then checks that it is still where it was read from:
+         * a node still in the queue is not retired, so it can't be reused while published.
+         */
+        boolean protect(int index, SimpleNode<T> node, ConcurrentLockFreeQueue<T> queue) {
+            hazards.set(index, node);
+            return node == queue.head || node == queue.tail;
+        }
 
-        public Getter(ConcurrentLockFreeQueue<Integer> q) {
-            this.q = q;
+        void clear() {
+            hazards.lazySet(0, null);
+            hazards.lazySet(1, null);
         }
 
-        @Override
-        public void run() {
-                q.get();
-                System.out.println("Thread " + Thread.currentThread().getName()
-                + "getting i");
+        /**
+         * Once enough nodes are retired, hands back the ones no thread publishes to their owners.
+         */
+        void retire(SimpleNode<T> node, List<NodePool<T>> allPools) {
+            retired.add(node);
+            if (retired.size() < SCAN_THRESHOLD + 2 * allPools.size()) {
+                return;
+            }
+            for (NodePool<T> pool : allPools) {
+                for (int i = 0; i < 2; i++) {
+                    SimpleNode<T> hazard = pool.hazards.get(i);
+                    if (hazard != null) {
+                        inUse.add(hazard);
+                    }
+                }
+            }
+            int kept = 0;
+            for (SimpleNode<T> candidate : retired) {
+                if (inUse.contains(candidate)) {
+                    retired.set(kept++, candidate);
+                } else if (candidate.owner != null) {
+                    candidate.owner.giveBack(candidate);
+                }
+            }
+            retired.subList(kept, retired.size()).clear();
+            inUse.clear();
+        }
 
+        private void giveBack(SimpleNode<T> node) {
+            node.value = null;
+            while (true) {
+                SimpleNode<T> top = returned.get();
+                node.nextFree = top;
+                if (returned.compareAndSet(top, node)) {
+                    return;
+                }
+            }
         }
     }
 }
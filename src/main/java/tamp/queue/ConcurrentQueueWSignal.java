@@ -1,84 +1,101 @@
 package tamp.queue;
 
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Bounded queue with one lock for the adders and one for the getters (TAMP chapter 10.3):
+ * add only touches tail and get only touches head, the size is the only thing they share
+ * and it is also what makes a node linked by add visible to get.
+ * A full queue makes add wait, an empty one makes get wait, each with its own WaitStrategy.
+ * Each add signals a single getter and each get a single adder, only if one is sleeping.
+ */
 public class ConcurrentQueueWSignal<T> {
 
     final ReentrantLock getLock;
     final ReentrantLock addLock;
-    final Condition nonEmptyQueue;
-    final Condition nonFullQueue;
+    final WaitStrategy nonEmptyQueue;
+    final WaitStrategy nonFullQueue;
     volatile SimpleNode<T> head;
     volatile SimpleNode<T> tail;
     final int capacity;
     AtomicInteger size;
 
     public ConcurrentQueueWSignal(int capacity) {
+        this(capacity, WaitStrategies.blocking(), WaitStrategies.blocking());
+    }
+
+    /**
+     * @param getters how get waits for an element
+     * @param adders how add waits for room
+     */
+    public ConcurrentQueueWSignal(int capacity, WaitStrategy getters, WaitStrategy adders) {
         this.capacity = capacity;
         head = new SimpleNode<T>(null); // head here is just as a dummy marker
-        head.next = tail;
+        tail = head;
         size = new AtomicInteger();
 
         addLock = new ReentrantLock();
-        nonFullQueue = addLock.newCondition();
+        nonFullQueue = adders;
 
         getLock = new ReentrantLock();
-        nonEmptyQueue = getLock.newCondition();
+        nonEmptyQueue = getters;
     }
 
     public void add(T value) throws InterruptedException {
+        nonFullQueue.waitFor(() -> offer(value) ? Boolean.TRUE : null);
+        nonEmptyQueue.signal();
+    }
 
-        while (size.get() == capacity) {
-            addLock.lock();
-            try {
-                nonFullQueue.await(1, TimeUnit.SECONDS);
-            } finally {
-                addLock.unlock();
-            }
-        }
+    public T get() throws InterruptedException {
+        T value = nonEmptyQueue.waitFor(this::poll);
+        nonFullQueue.signal();
+        return value;
+    }
 
-        SimpleNode<T> newNode = new SimpleNode<>(value);
-        if (size.getAndIncrement() == 0) {
-            tail = newNode;
-            head.next = newNode;
-        } else {
+    /**
+     * @return false if the queue is full
+     */
+    public boolean offer(T value) {
+        addLock.lock();
+        try {
+            if (size.get() == capacity) {
+                return false;
+            }
+            SimpleNode<T> newNode = new SimpleNode<>(value);
             tail.next = newNode;
             tail = newNode;
-        }
-
-        getLock.lock();
-        try {
-            nonEmptyQueue.signalAll();
+            size.getAndIncrement();
+            return true;
         } finally {
-            getLock.unlock();
+            addLock.unlock();
         }
     }
 
-    public T get() throws InterruptedException {
-        while (size.get() == 0) {
-            getLock.lock();
-            try {
-                nonEmptyQueue.await();
-            } finally {
-                getLock.unlock();
-            }
-        }
-
-        addLock.lock();
+    /**
+     * @return null if the queue is empty
+     */
+    public T poll() {
+        getLock.lock();
         try {
+            if (size.get() == 0) {
+                return null;
+            }
             SimpleNode<T> getNode = head.next;
-            head.next = getNode.next;
+            head = getNode; // the new dummy
+            T value = getNode.value;
+            getNode.value = null;
             size.getAndDecrement();
-            nonFullQueue.signalAll();
-            return getNode.value;
+            return value;
         } finally {
-            addLock.unlock();
+            getLock.unlock();
         }
     }
 
+    public int size() {
+        return size.get();
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -91,7 +108,7 @@ public class ConcurrentQueueWSignal<T> {
     }
 
     public static class SimpleNode<T> {
-        final T value;
+        T value;
         SimpleNode<T> next;
 
         public SimpleNode(T value) {
@@ -1,83 +1,238 @@
 package tamp.queue;
 
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+import tamp.metrics.Metrics;
 
 /**
- * Simple bounded queue where each entry can be composed of a value and a lock.
+ * Bounded multi producer multi consumer queue on an array, without locks (Vyukov's bounded MPMC queue).
+ *  - tail and head only grow, slot i holds the element at positions i, i + capacity, i + 2 * capacity...
+ *  - Each slot has a sequence number telling whose turn it is: position p for the producer of p,
+ *  p + 1 for its consumer once the element is in, p + capacity for the producer of the next round once it is out.
+ *  - offer claims the tail with a CAS only when its slot is ready for it, writes the element, then publishes
+ *  the sequence; a slot still a round behind means the queue is full. poll is the mirror image, so neither
+ *  ever overwrites an unread element or reads an unwritten one, and neither waits for a lock.
+ *  - offerBatch and drainTo look at the slots ahead for the run of them that is ready, then claim
+ *  the whole run with a single CAS.
+ *  - tail and head are on their own 128 bytes, as in StripedCounter, so producers and consumers
+ *  don't invalidate each other's line.
+ * The capacity is rounded up to a power of 2. null elements can't be told apart from an empty queue.
+ * With Metrics, reports every compare and set lost to another thread.
  */
 public class ConcurrentRingBuffer<T> implements SimpleQueue<T> {
 
-    private final ReentrantLock[] locks;
-    private final T[] elements;
-    private final int capacity;
-    private AtomicInteger getPos;
-    private AtomicInteger insertPos;
-    private AtomicInteger numberOfElements;
+    private static final int PADDING = 16; // longs, 128 bytes
+    private static final int TAIL = PADDING;
+    private static final int HEAD = 2 * PADDING;
+    private static final int MAX_CAPACITY = 1 << 30; // rounded up to a power of 2, it still fits an int
 
-    public ConcurrentRingBuffer(final int capacity) {
-        this.capacity = capacity;
-        insertPos = new AtomicInteger(-1);
-        getPos = new AtomicInteger(0);
-        numberOfElements = new AtomicInteger(0);
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLongArray positions; // tail and head, padded
+    private final int mask;
+    private final Metrics metrics;
 
-        locks = new ReentrantLock[capacity];
-        elements = (T[]) new Object[capacity];
+    public ConcurrentRingBuffer(final int capacity) {
+        this(capacity, Metrics.NONE);
+    }
 
-        for (int i = 0; i < capacity; i++) {
-            locks[i] = new ReentrantLock();
+    public ConcurrentRingBuffer(final int capacity, final Metrics metrics) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity * 2 - 1);
+        this.mask = size - 1;
+        this.metrics = metrics;
+        this.elements = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
         }
+        this.positions = new AtomicLongArray(3 * PADDING);
     }
 
+    /**
+     * @throws QueueFullException if the queue is full
+     */
     @Override
     public void add(final T element) {
-        int currInsertPos = insertPos.get();
-        if (numberOfElements.get() == capacity) {
-            throw new RuntimeException(); // full
+        if (!offer(element)) {
+            throw new QueueFullException();
+        }
+    }
+
+    /**
+     * @return null if the queue is empty
+     */
+    @Override
+    public T get() {
+        return poll();
+    }
+
+    /**
+     * @return false if the queue is full
+     */
+    public boolean offer(final T element) {
+        long position = positions.get(TAIL);
+        while (true) {
+            int index = (int) position & mask;
+            long lag = sequences.get(index) - position;
+            if (lag == 0) {
+                if (positions.compareAndSet(TAIL, position, position + 1)) {
+                    elements[index] = element;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                metrics.casFailure();
+                position = positions.get(TAIL);
+            } else if (lag < 0) {
+                return false; // the consumer of the previous round is not done with the slot
+            } else {
+                position = positions.get(TAIL); // another producer took it
+            }
         }
+    }
 
-        int insertIndex = (currInsertPos + 1) % capacity;
-        if (!insertPos.compareAndSet(currInsertPos, insertIndex))
-            add(element);
+    /**
+     * @return null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long position = positions.get(HEAD);
+        while (true) {
+            int index = (int) position & mask;
+            long lag = sequences.get(index) - (position + 1);
+            if (lag == 0) {
+                if (positions.compareAndSet(HEAD, position, position + 1)) {
+                    T element = (T) elements[index];
+                    elements[index] = null;
+                    sequences.lazySet(index, position + mask + 1);
+                    return element;
+                }
+                metrics.casFailure();
+                position = positions.get(HEAD);
+            } else if (lag < 0) {
+                return null; // the producer has not written it yet
+            } else {
+                position = positions.get(HEAD); // another consumer took it
+            }
+        }
+    }
 
-        locks[insertIndex].lock();
-        try {
-            elements[insertIndex] = element;
-            numberOfElements.getAndIncrement();
-        } finally {
-            locks[insertIndex].unlock();
+    /**
+     * Claims the run of free slots at the tail, up to the batch length, with one CAS.
+     * A slot only becomes free for position p once its sequence is p, and only the producer that claims p
+     * changes it then, so the slots seen free before the CAS are still free after it.
+     */
+    @Override
+    public int offerBatch(final T[] batch) {
+        while (true) {
+            long position = positions.get(TAIL);
+            int ready = 0;
+            while (ready < batch.length && ready <= mask
+                && sequences.get((int) (position + ready) & mask) == position + ready) {
+                ready++;
+            }
+            if (ready == 0) {
+                if (sequences.get((int) position & mask) - position < 0 || batch.length == 0) {
+                    return 0; // full
+                }
+                continue; // another producer took it
+            }
+            if (positions.compareAndSet(TAIL, position, position + ready)) {
+                for (int i = 0; i < ready; i++) {
+                    int index = (int) (position + i) & mask;
+                    elements[index] = batch[i];
+                    sequences.lazySet(index, position + i + 1);
+                }
+                return ready;
+            }
+            metrics.casFailure();
         }
     }
 
+    /**
+     * Claims the run of written slots at the head, up to max, with one CAS.
+     */
     @Override
-    public T get() {
-        if (numberOfElements.get() == 0) // either non-init of empty
-            return null;
-
-        int currGetPos = getPos.getAndIncrement() % capacity;
-        locks[currGetPos].lock();
-        try {
-            T element = elements[currGetPos];
-            numberOfElements.getAndDecrement();
-            return element;
-        } finally {
-            locks[currGetPos].unlock();
+    @SuppressWarnings("unchecked")
+    public int drainTo(final Consumer<? super T> consumer, final int max) {
+        while (true) {
+            long position = positions.get(HEAD);
+            int ready = 0;
+            while (ready < max && ready <= mask
+                && sequences.get((int) (position + ready) & mask) == position + ready + 1) {
+                ready++;
+            }
+            if (ready == 0) {
+                if (sequences.get((int) position & mask) - (position + 1) < 0 || max <= 0) {
+                    return 0; // empty
+                }
+                continue; // another consumer took it
+            }
+            if (positions.compareAndSet(HEAD, position, position + ready)) {
+                int released = 0;
+                try {
+                    while (released < ready) {
+                        int index = (int) (position + released) & mask;
+                        T element = (T) elements[index];
+                        release(index, position + released);
+                        released++;
+                        consumer.accept(element);
+                    }
+                } finally {
+                    // head is past them already, nobody else would ever free the slots a throwing consumer left
+                    for (int i = released; i < ready; i++) {
+                        release((int) (position + i) & mask, position + i);
+                    }
+                }
+                return ready;
+            }
+            metrics.casFailure();
+        }
+    }
+
+    /**
+     * Hands the slot of position over to the producer of the next round.
+     */
+    private void release(final int index, final long position) {
+        elements[index] = null;
+        sequences.lazySet(index, position + mask + 1);
+    }
+
+    /**
+     * Number of claimed positions not yet consumed, elements being written included.
+     */
+    public int size() {
+        while (true) {
+            long head = positions.get(HEAD);
+            long tail = positions.get(TAIL);
+            if (head == positions.get(HEAD)) {
+                return (int) Math.max(Math.min(tail - head, mask + 1), 0);
+            }
         }
     }
 
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * The elements between head and tail as they are read, not an atomic view.
+     */
     @Override
     public String toString() {
-        int currNumElements = numberOfElements.get();
-        if  (currNumElements == 0)
-            return "";
         StringBuilder sb = new StringBuilder();
-        int currGetPos = getPos.get();
-        int end = currGetPos + currNumElements;
-        while (currGetPos < end) {
-            sb.append(elements[currGetPos % capacity] + ", ");
-            currGetPos++;
+        long head = positions.get(HEAD);
+        long tail = positions.get(TAIL);
+        for (long position = head; position < tail && position <= head + mask; position++) {
+            Object element = elements[(int) position & mask];
+            if (element != null) {
+                sb.append(element + ", ");
+            }
         }
-        return sb.substring(0, sb.length() - 2).toString();
+        return sb.length() == 0 ? "" : sb.substring(0, sb.length() - 2);
     }
 
 }
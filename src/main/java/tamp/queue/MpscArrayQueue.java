@@ -0,0 +1,172 @@
+package tamp.queue;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queue for any number of producer threads and exactly one consumer thread.
+ *  - Producers claim a position with a CAS on tail, then write the element into its slot with a lazySet.
+ *  Instead of reading head on every offer they check tail against a shared limit (head + capacity at the
+ *  last check), and only read head again when the limit is reached.
+ *  - The consumer alone moves head, with a lazySet. A null slot behind tail is a producer between its CAS
+ *  and its write, the consumer waits for it rather than skip it.
+ *  - offerBatch claims the places of the whole batch with one CAS, drainTo moves head once.
+ *  - tail and the limit share 128 bytes written by the producers only, head is on its own.
+ * The capacity is rounded up to a power of 2. null elements are refused.
+ */
+public class MpscArrayQueue<T> implements SimpleQueue<T> {
+
+    private static final int PADDING = 16; // longs, 128 bytes
+    private static final int TAIL = PADDING;
+    private static final int LIMIT = PADDING + 1;
+    private static final int HEAD = 2 * PADDING;
+    private static final int MAX_CAPACITY = 1 << 30; // rounded up to a power of 2, it still fits an int
+
+    private final AtomicReferenceArray<T> elements;
+    private final AtomicLongArray positions;
+    private final int mask;
+
+    public MpscArrayQueue(final int capacity) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity * 2 - 1);
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.positions = new AtomicLongArray(3 * PADDING);
+        positions.set(LIMIT, size);
+    }
+
+    /**
+     * @throws QueueFullException if the queue is full
+     */
+    @Override
+    public void add(final T element) {
+        if (!offer(element)) {
+            throw new QueueFullException();
+        }
+    }
+
+    /**
+     * @return null if the queue is empty
+     */
+    @Override
+    public T get() {
+        return poll();
+    }
+
+    /**
+     * @return false if the queue is full
+     */
+    public boolean offer(final T element) {
+        if (element == null) {
+            throw new IllegalArgumentException("null elements are not supported");
+        }
+        long limit = positions.get(LIMIT);
+        while (true) {
+            long tail = positions.get(TAIL);
+            if (tail >= limit) {
+                limit = positions.get(HEAD) + mask + 1;
+                if (tail >= limit) {
+                    return false;
+                }
+                positions.set(LIMIT, limit); // may go back to an older limit, which only costs a read of head
+            }
+            if (positions.compareAndSet(TAIL, tail, tail + 1)) {
+                elements.lazySet((int) tail & mask, element);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public int offerBatch(final T[] batch) {
+        for (T element : batch) {
+            if (element == null) {
+                throw new IllegalArgumentException("null elements are not supported");
+            }
+        }
+        long limit = positions.get(LIMIT);
+        while (true) {
+            long tail = positions.get(TAIL);
+            if (tail + batch.length > limit) {
+                limit = positions.get(HEAD) + mask + 1;
+                positions.set(LIMIT, limit);
+            }
+            int count = (int) Math.min(limit - tail, batch.length);
+            if (count <= 0) {
+                return 0;
+            }
+            if (positions.compareAndSet(TAIL, tail, tail + count)) {
+                for (int i = 0; i < count; i++) {
+                    elements.lazySet((int) (tail + i) & mask, batch[i]);
+                }
+                return count;
+            }
+        }
+    }
+
+    /**
+     * Consumer thread only.
+     * @return null if the queue is empty
+     */
+    public T poll() {
+        long head = positions.get(HEAD);
+        int index = (int) head & mask;
+        T element = elements.get(index);
+        if (element == null) {
+            if (head == positions.get(TAIL)) {
+                return null;
+            }
+            do {
+                element = elements.get(index); // claimed, about to be written
+            } while (element == null);
+        }
+        elements.lazySet(index, null);
+        positions.lazySet(HEAD, head + 1);
+        return element;
+    }
+
+    /**
+     * Consumer thread only.
+     */
+    @Override
+    public int drainTo(final Consumer<? super T> consumer, final int max) {
+        long head = positions.get(HEAD);
+        long tail = positions.get(TAIL);
+        int count = (int) Math.max(Math.min(tail - head, max), 0);
+        int drained = 0;
+        try {
+            while (drained < count) {
+                int index = (int) (head + drained) & mask;
+                T element;
+                do {
+                    element = elements.get(index); // claimed, maybe about to be written
+                } while (element == null);
+                elements.lazySet(index, null);
+                drained++;
+                consumer.accept(element);
+            }
+        } finally {
+            if (drained > 0) {
+                positions.lazySet(HEAD, head + drained);
+            }
+        }
+        return drained;
+    }
+
+    public int size() {
+        while (true) {
+            long head = positions.get(HEAD);
+            long tail = positions.get(TAIL);
+            if (head == positions.get(HEAD)) {
+                return (int) (tail - head);
+            }
+        }
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
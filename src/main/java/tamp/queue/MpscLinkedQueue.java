@@ -0,0 +1,97 @@
+package tamp.queue;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
+
+/**
+ * Unbounded queue for any number of producer threads and exactly one consumer thread (Vyukov's MPSC queue).
+ *  - A producer swaps itself in as the last node with a getAndSet, which never fails, then links
+ *  the previous last node to it.
+ *  - The consumer alone moves head along the next links. Between the swap and the link the new node is not
+ *  reachable yet, so the consumer can see the queue as empty for that moment.
+ *  - offerBatch chains its nodes first and swaps the whole chain in with one getAndSet.
+ * No CAS loop on either side. null elements can't be told apart from an empty queue.
+ */
+public class MpscLinkedQueue<T> implements SimpleQueue<T> {
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+        AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+
+    private final AtomicReference<Node<T>> tail;
+    private Node<T> head; // consumer only, a dummy whose next is the first element
+
+    public MpscLinkedQueue() {
+        head = new Node<>(null);
+        tail = new AtomicReference<>(head);
+    }
+
+    @Override
+    public void add(final T element) {
+        Node<T> node = new Node<>(element);
+        Node<T> previous = tail.getAndSet(node);
+        NEXT.lazySet(previous, node);
+    }
+
+    @Override
+    public int offerBatch(final T[] batch) {
+        if (batch.length == 0) {
+            return 0;
+        }
+        Node<T> first = new Node<>(batch[0]);
+        Node<T> last = first;
+        for (int i = 1; i < batch.length; i++) {
+            Node<T> node = new Node<>(batch[i]);
+            NEXT.lazySet(last, node);
+            last = node;
+        }
+        Node<T> previous = tail.getAndSet(last);
+        NEXT.lazySet(previous, first);
+        return batch.length;
+    }
+
+    /**
+     * Consumer thread only.
+     * @return null if the queue is empty
+     */
+    @Override
+    public T get() {
+        Node<T> next = head.next;
+        if (next == null) {
+            return null;
+        }
+        T element = next.value;
+        next.value = null; // next is the dummy now
+        head = next;
+        return element;
+    }
+
+    /**
+     * Consumer thread only.
+     */
+    @Override
+    public int drainTo(final Consumer<? super T> consumer, final int max) {
+        int drained = 0;
+        Node<T> node = head;
+        Node<T> next;
+        while (drained < max && (next = node.next) != null) {
+            T element = next.value;
+            next.value = null;
+            head = next;
+            node = next;
+            drained++;
+            consumer.accept(element);
+        }
+        return drained;
+    }
+
+    static final class Node<T> {
+        T value;
+        volatile Node<T> next;
+
+        Node(final T value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package tamp.queue;
+
+/**
+ * Thrown by add when a bounded queue has no room left,
+ * the only exception the default offerBatch takes as the end of the batch.
+ */
+public class QueueFullException extends RuntimeException {
+
+    public QueueFullException() {
+        super("queue is full");
+    }
+
+    public QueueFullException(final String message) {
+        super(message);
+    }
+}
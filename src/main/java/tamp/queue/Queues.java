@@ -0,0 +1,41 @@
+package tamp.queue;
+
+/**
+ * Picks the cheapest queue for the number of threads that will add to it and get from it:
+ * each producer or consumer side that is known to be a single thread needs no CAS.
+ */
+public final class Queues {
+
+    private Queues() {
+    }
+
+    /**
+     * SpscArrayQueue for one producer and one consumer, MpscArrayQueue for one consumer,
+     * ConcurrentRingBuffer otherwise.
+     */
+    public static <T> SimpleQueue<T> bounded(final int producers, final int consumers, final int capacity) {
+        check(producers, consumers);
+        if (consumers == 1) {
+            return producers == 1 ? new SpscArrayQueue<>(capacity) : new MpscArrayQueue<>(capacity);
+        }
+        return new ConcurrentRingBuffer<>(capacity);
+    }
+
+    /**
+     * MpscLinkedQueue for one consumer, an unbounded ConcurrentLockFreeQueue otherwise.
+     */
+    public static <T> SimpleQueue<T> unbounded(final int producers, final int consumers) {
+        check(producers, consumers);
+        if (consumers == 1) {
+            return new MpscLinkedQueue<>();
+        }
+        return new ConcurrentLockFreeQueue<>(Integer.MAX_VALUE);
+    }
+
+    private static void check(final int producers, final int consumers) {
+        if (producers <= 0 || consumers <= 0) {
+            throw new IllegalArgumentException("producers and consumers must be positive: "
+                + producers + ", " + consumers);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package tamp.queue;
 
+import java.util.function.Consumer;
+
 public class SimpleArrayQueue<T> implements SimpleQueue<T> {
 
     public final int size;
@@ -17,7 +19,7 @@ public class SimpleArrayQueue<T> implements SimpleQueue<T> {
     @Override
     public void add(T element) {
         if (head != -1 && ((head + 1) % size) == tail) {
-            throw new RuntimeException();
+            throw new QueueFullException();
         }
         head = (head + 1) % size;
         elements[head] = element;
@@ -33,6 +35,16 @@ public class SimpleArrayQueue<T> implements SimpleQueue<T> {
         return element;
     }
 
+    @Override
+    public int drainTo(Consumer<? super T> consumer, int max) {
+        int drained = 0;
+        while (drained < max && elements[tail] != null) {
+            consumer.accept(get());
+            drained++;
+        }
+        return drained;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
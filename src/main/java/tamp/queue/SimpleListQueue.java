@@ -1,5 +1,7 @@
 package tamp.queue;
 
+import java.util.function.Consumer;
+
 public class SimpleListQueue<T> implements SimpleQueue<T> {
 
     SimpleNode<T> head;
@@ -32,6 +34,16 @@ public class SimpleListQueue<T> implements SimpleQueue<T> {
         return getNode.value;
     }
 
+    @Override
+    public int drainTo(Consumer<? super T> consumer, int max) {
+        int drained = 0;
+        while (drained < max && head.next != null) {
+            consumer.accept(get());
+            drained++;
+        }
+        return drained;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
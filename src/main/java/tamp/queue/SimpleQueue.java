@@ -1,7 +1,52 @@
 package tamp.queue;
 
+import java.util.function.Consumer;
+
 public interface SimpleQueue<T> {
 
     void add(T element);
     T get();
+
+    /**
+     * Adds the elements of the batch in order, as many as fit.
+     * By default one add per element until one throws QueueFullException,
+     * the concurrent queues claim the places of the whole batch at once.
+     * @return the number of elements added, the first ones of the batch
+     */
+    default int offerBatch(T[] batch) {
+        for (int i = 0; i < batch.length; i++) {
+            try {
+                add(batch[i]);
+            } catch (QueueFullException e) {
+                return i;
+            }
+        }
+        return batch.length;
+    }
+
+    /**
+     * @throws QueueFullException if the queue is full before the end of the batch, the elements that fit are added
+     */
+    default void addAll(T[] batch) {
+        int added = offerBatch(batch);
+        if (added < batch.length) {
+            throw new QueueFullException("queue is full after " + added + " of " + batch.length + " elements");
+        }
+    }
+
+    /**
+     * Gets up to max elements, in order, and hands them to the consumer.
+     * By default one get per element, the concurrent queues take the whole range at once:
+     * if the consumer throws, the elements of the range not handed to it yet may be lost.
+     * @return the number of elements drained, 0 if the queue is empty
+     */
+    default int drainTo(Consumer<? super T> consumer, int max) {
+        int drained = 0;
+        T element;
+        while (drained < max && (element = get()) != null) {
+            consumer.accept(element);
+            drained++;
+        }
+        return drained;
+    }
 }
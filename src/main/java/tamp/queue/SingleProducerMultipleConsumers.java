@@ -8,11 +8,18 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+/**
+ * One thread pulls the iterator into a bounded queue, any number of consumers get from it.
+ * Consumers wait for elements with a WaitStrategy (spin then park by default), the producer signals
+ * one of them per element and all of them once the iterator is done.
+ */
 public class SingleProducerMultipleConsumers<T> {
 
+    private static final Object FINISHED = new Object();
 
     private final BlockingQueue<T> queue;
     private final Iterator<T> iterator;
+    private final WaitStrategy waitStrategy;
     private volatile boolean isFinished = false;
     private List<Throwable> finishedWErrors = new ArrayList<>();
 
@@ -23,25 +30,38 @@ public class SingleProducerMultipleConsumers<T> {
     /**
      * @return null is there is no more account to pull
      */
+    @SuppressWarnings("unchecked")
     public T get() {
-        while (true) {
-            T element = queue.poll();
-            if (isFinished && element == null) {
-                // it is possible that the condition is true but from the moment
-                // of the poll to the moment of the evaluation of the condition, more elements were pushed
-                // so poll one more time to make sure that the queue is indeed empty
-                element = queue.poll();
-                if (element == null) break;
-            }
-            if (element != null) return element;
+        Object element;
+        try {
+            element = waitStrategy.waitFor(this::poll);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        return element == FINISHED ? null : (T) element;
+    }
+
+    /**
+     * @return the next element, FINISHED once there are no more, null if there are none yet
+     */
+    private Object poll() {
+        T element = queue.poll();
+        if (isFinished && element == null) {
+            // it is possible that the condition is true but from the moment
+            // of the poll to the moment of the evaluation of the condition, more elements were pushed
+            // so poll one more time to make sure that the queue is indeed empty
+            element = queue.poll();
+            if (element == null) return FINISHED;
         }
-        return null;
+        return element;
     }
 
     public static class Builder<T> {
 
         private final Iterator<T> iterator;
         private final int capacity;
+        private WaitStrategy waitStrategy = WaitStrategies.spinThenPark();
 
         public Builder(final Iterator<T> iterator,
                        final int capacity) {
@@ -49,19 +69,26 @@ public class SingleProducerMultipleConsumers<T> {
             this.capacity = capacity;
         }
 
+        public Builder<T> waitStrategy(final WaitStrategy waitStrategy) {
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+
         public SingleProducerMultipleConsumers start() {
             BlockingQueue<T> queue = new ArrayBlockingQueue<>(capacity);
             SingleProducerMultipleConsumers singleProducerMultipleConsumers = new SingleProducerMultipleConsumers(queue,
-                    iterator);
+                    iterator, waitStrategy);
             singleProducerMultipleConsumers.start();
             return singleProducerMultipleConsumers ;
         }
     }
 
     private SingleProducerMultipleConsumers(final BlockingQueue<T> queue,
-                                            final Iterator<T> iterator) {
+                                            final Iterator<T> iterator,
+                                            final WaitStrategy waitStrategy) {
         this.queue = queue;
         this.iterator = iterator;
+        this.waitStrategy = waitStrategy;
     }
 
     private void start() {
@@ -70,11 +97,13 @@ public class SingleProducerMultipleConsumers<T> {
             try {
                 while (iterator.hasNext()) {
                     queue.put(iterator.next());
+                    waitStrategy.signal();
                 }
             } catch (final InterruptedException e) {
                 finishedWErrors.add(new Throwable(e));
             } finally {
                 isFinished = true;
+                waitStrategy.signalAll();
             }
         };
         service.submit(runnable);
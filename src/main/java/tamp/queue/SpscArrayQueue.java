@@ -0,0 +1,161 @@
+package tamp.queue;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queue for exactly one producer thread and one consumer thread.
+ *  - tail is only written by the producer and head by the consumer, so neither needs a CAS:
+ *  each publishes its position with a lazySet (a store ordered after the element, without a full fence).
+ *  - Each side keeps its last read of the other's position in a plain field and only reads it again
+ *  when that one says the queue is full (producer) or empty (consumer), so most operations touch
+ *  no line written by the other thread but the element's.
+ *  - offerBatch and drainTo move their index once for the whole batch.
+ *  - tail, head and the two cached copies are each on their own 128 bytes.
+ * The capacity is rounded up to a power of 2. null elements can't be told apart from an empty queue.
+ */
+public class SpscArrayQueue<T> implements SimpleQueue<T> {
+
+    private static final int PADDING = 16; // longs, 128 bytes
+    private static final int TAIL = PADDING;
+    private static final int HEAD = 2 * PADDING;
+    private static final int MAX_CAPACITY = 1 << 30; // rounded up to a power of 2, it still fits an int
+    private static final int PRODUCER_HEAD = PADDING; // in cached
+    private static final int CONSUMER_TAIL = 2 * PADDING;
+
+    private final Object[] elements;
+    private final AtomicLongArray positions;
+    private final long[] cached; // the producer's copy of head, the consumer's copy of tail
+    private final int mask;
+
+    public SpscArrayQueue(final int capacity) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity * 2 - 1);
+        this.mask = size - 1;
+        this.elements = new Object[size];
+        this.positions = new AtomicLongArray(3 * PADDING);
+        this.cached = new long[3 * PADDING];
+    }
+
+    /**
+     * @throws QueueFullException if the queue is full
+     */
+    @Override
+    public void add(final T element) {
+        if (!offer(element)) {
+            throw new QueueFullException();
+        }
+    }
+
+    /**
+     * @return null if the queue is empty
+     */
+    @Override
+    public T get() {
+        return poll();
+    }
+
+    /**
+     * Producer thread only.
+     * @return false if the queue is full
+     */
+    public boolean offer(final T element) {
+        long tail = positions.get(TAIL);
+        if (tail - cached[PRODUCER_HEAD] > mask) {
+            cached[PRODUCER_HEAD] = positions.get(HEAD);
+            if (tail - cached[PRODUCER_HEAD] > mask) {
+                return false;
+            }
+        }
+        elements[(int) tail & mask] = element;
+        positions.lazySet(TAIL, tail + 1);
+        return true;
+    }
+
+    /**
+     * Consumer thread only.
+     * @return null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long head = positions.get(HEAD);
+        if (head >= cached[CONSUMER_TAIL]) {
+            cached[CONSUMER_TAIL] = positions.get(TAIL);
+            if (head >= cached[CONSUMER_TAIL]) {
+                return null;
+            }
+        }
+        int index = (int) head & mask;
+        T element = (T) elements[index];
+        elements[index] = null;
+        positions.lazySet(HEAD, head + 1);
+        return element;
+    }
+
+    /**
+     * Producer thread only.
+     */
+    @Override
+    public int offerBatch(final T[] batch) {
+        long tail = positions.get(TAIL);
+        long free = mask + 1 - (tail - cached[PRODUCER_HEAD]);
+        if (free < batch.length) {
+            cached[PRODUCER_HEAD] = positions.get(HEAD);
+            free = mask + 1 - (tail - cached[PRODUCER_HEAD]);
+        }
+        int count = (int) Math.min(free, batch.length);
+        for (int i = 0; i < count; i++) {
+            elements[(int) (tail + i) & mask] = batch[i];
+        }
+        if (count > 0) {
+            positions.lazySet(TAIL, tail + count);
+        }
+        return count;
+    }
+
+    /**
+     * Consumer thread only.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public int drainTo(final Consumer<? super T> consumer, final int max) {
+        long head = positions.get(HEAD);
+        long available = cached[CONSUMER_TAIL] - head;
+        if (available < max) {
+            cached[CONSUMER_TAIL] = positions.get(TAIL);
+            available = cached[CONSUMER_TAIL] - head;
+        }
+        int count = (int) Math.max(Math.min(available, max), 0);
+        int drained = 0;
+        try {
+            while (drained < count) {
+                int index = (int) (head + drained) & mask;
+                T element = (T) elements[index];
+                elements[index] = null;
+                drained++;
+                consumer.accept(element);
+            }
+        } finally {
+            if (drained > 0) {
+                positions.lazySet(HEAD, head + drained);
+            }
+        }
+        return drained;
+    }
+
+    public int size() {
+        while (true) {
+            long head = positions.get(HEAD);
+            long tail = positions.get(TAIL);
+            if (head == positions.get(HEAD)) {
+                return (int) (tail - head);
+            }
+        }
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
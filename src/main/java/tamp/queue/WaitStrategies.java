@@ -0,0 +1,244 @@
+package tamp.queue;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * The available wait strategies, from the lowest latency (and a core burnt per waiting thread)
+ * to the least cpu (and the wake up latency of the scheduler).
+ *  - busySpin: retries right away.
+ *  - spinThenYield: retries right away a number of times, then yields the cpu between attempts.
+ *  - spinThenPark: spins, then parks until signalled.
+ *  - timedPark: sleeps a fixed time between attempts, needs no signal.
+ *  - blocking: waits on a lock condition, signal wakes a single waiter.
+ * Every strategy throws InterruptedException when the waiting thread is interrupted.
+ * The strategies that park start signal with a volatile write, a full fence on Java 8: the queues publish
+ * their elements with lazySet, which could otherwise be reordered after the check for waiters.
+ */
+public final class WaitStrategies {
+
+    private static final int DEFAULT_SPINS = 100;
+
+    private WaitStrategies() {
+    }
+
+    public static WaitStrategy busySpin() {
+        return new SpinThenYield(Integer.MAX_VALUE);
+    }
+
+    public static WaitStrategy spinThenYield() {
+        return spinThenYield(DEFAULT_SPINS);
+    }
+
+    public static WaitStrategy spinThenYield(final int spins) {
+        return new SpinThenYield(spins);
+    }
+
+    public static WaitStrategy spinThenPark() {
+        return spinThenPark(DEFAULT_SPINS);
+    }
+
+    public static WaitStrategy spinThenPark(final int spins) {
+        return new SpinThenPark(spins);
+    }
+
+    public static WaitStrategy timedPark(final long time, final TimeUnit unit) {
+        return new TimedPark(unit.toNanos(time));
+    }
+
+    public static WaitStrategy blocking() {
+        return new Blocking();
+    }
+
+    private static void checkInterrupt() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Nobody sleeps, so there is nobody to signal.
+     */
+    private static final class SpinThenYield implements WaitStrategy {
+        private final int spins;
+
+        SpinThenYield(final int spins) {
+            this.spins = spins;
+        }
+
+        @Override
+        public <R> R waitFor(final Supplier<R> attempt) throws InterruptedException {
+            R result;
+            int tries = 0;
+            while ((result = attempt.get()) == null) {
+                checkInterrupt();
+                if (tries < spins) {
+                    tries++;
+                } else {
+                    Thread.yield();
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public void signal() {
+        }
+
+        @Override
+        public void signalAll() {
+        }
+    }
+
+    /**
+     * A waiter registers itself then tries once more before parking: a signal sent before the registration
+     * comes with an element the last attempt sees, one sent after it finds the thread to unpark.
+     */
+    private static final class SpinThenPark implements WaitStrategy {
+        private final int spins;
+        private final Queue<Thread> waiters = new ConcurrentLinkedQueue<>();
+        private volatile int fence; // only written, for the StoreLoad barrier
+
+        SpinThenPark(final int spins) {
+            this.spins = spins;
+        }
+
+        @Override
+        public <R> R waitFor(final Supplier<R> attempt) throws InterruptedException {
+            R result;
+            for (int i = 0; i < spins; i++) {
+                if ((result = attempt.get()) != null) {
+                    return result;
+                }
+            }
+            Thread current = Thread.currentThread();
+            while (true) {
+                waiters.add(current);
+                if ((result = attempt.get()) != null) {
+                    waiters.remove(current);
+                    return result;
+                }
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    waiters.remove(current);
+                    signal(); // in case the signal was for this thread
+                    throw new InterruptedException();
+                }
+                waiters.remove(current); // woken by something else than a signal
+                if ((result = attempt.get()) != null) {
+                    return result;
+                }
+            }
+        }
+
+        @Override
+        public void signal() {
+            fence = 0;
+            if (!waiters.isEmpty()) {
+                Thread waiter = waiters.poll();
+                if (waiter != null) {
+                    LockSupport.unpark(waiter);
+                }
+            }
+        }
+
+        @Override
+        public void signalAll() {
+            fence = 0;
+            Thread waiter;
+            while ((waiter = waiters.poll()) != null) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+    private static final class TimedPark implements WaitStrategy {
+        private final long nanos;
+
+        TimedPark(final long nanos) {
+            this.nanos = nanos;
+        }
+
+        @Override
+        public <R> R waitFor(final Supplier<R> attempt) throws InterruptedException {
+            R result;
+            while ((result = attempt.get()) == null) {
+                LockSupport.parkNanos(this, nanos);
+                checkInterrupt();
+            }
+            return result;
+        }
+
+        @Override
+        public void signal() {
+        }
+
+        @Override
+        public void signalAll() {
+        }
+    }
+
+    /**
+     * The attempts are made under the lock, and signal only takes it when the waiters count says someone
+     * is (about to be) waiting: a waiter counts itself before its attempt, so either the attempt sees
+     * what the signalling thread did or the signalling thread sees the waiter.
+     */
+    private static final class Blocking implements WaitStrategy {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition condition = lock.newCondition();
+        private volatile int waiters; // only written under the lock
+        private volatile int fence; // only written, for the StoreLoad barrier
+
+        @Override
+        public <R> R waitFor(final Supplier<R> attempt) throws InterruptedException {
+            R result = attempt.get();
+            if (result != null) {
+                return result;
+            }
+            lock.lockInterruptibly();
+            waiters++;
+            try {
+                while ((result = attempt.get()) == null) {
+                    try {
+                        condition.await();
+                    } catch (InterruptedException e) {
+                        condition.signal(); // in case the signal was for this thread
+                        throw e;
+                    }
+                }
+                return result;
+            } finally {
+                waiters--;
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void signal() {
+            fence = 0;
+            if (waiters > 0) {
+                lock.lock();
+                try {
+                    condition.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        @Override
+        public void signalAll() {
+            lock.lock();
+            try {
+                condition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
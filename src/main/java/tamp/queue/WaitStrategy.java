@@ -0,0 +1,32 @@
+package tamp.queue;
+
+import java.util.function.Supplier;
+
+/**
+ * How a thread waits for a queue to give it something: an element to get, or room to add.
+ * The waiting thread keeps calling its attempt until it returns non null, in between it spins,
+ * yields, parks or sleeps on a condition, see WaitStrategies.
+ * The thread that makes an attempt succeed (adds an element, gets one out) calls signal(), which wakes one
+ * waiter for the strategies that sleep until woken and costs a volatile read when nobody sleeps.
+ * A strategy that keeps waiters holds the waiters of one condition: a queue with consumers waiting
+ * for elements and producers waiting for room takes one instance for each.
+ * Any SimpleQueue whose get returns null when empty can be waited on with waitFor(queue::get).
+ */
+public interface WaitStrategy {
+
+    /**
+     * @param attempt tries once, returns null if it has to wait
+     * @return the first non null result of the attempt
+     */
+    <R> R waitFor(Supplier<R> attempt) throws InterruptedException;
+
+    /**
+     * Wakes one waiter, if some are sleeping.
+     */
+    void signal();
+
+    /**
+     * Wakes every waiter, for a change they all have to see (end of the stream).
+     */
+    void signalAll();
+}
@@ -0,0 +1,270 @@
+package tamp.set;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Cuckoo hashset where each of the two tables is made of buckets of 4 slots instead of single slots,
+ * plus a small stash for the few elements that could not be placed.
+ * With a single slot per position, cuckoo hashing has to grow at about 50% occupancy,
+ * with 4 slots per bucket the random walk of displacements keeps finding room up to 95%,
+ * and the stash absorbs the rare failures before that, so the tables only grow when the stash is full.
+ * Unless they are less than half full: the failures then come from elements sharing a hashCode, which no table size
+ * separates, and the stash grows past its 4 slots instead.
+ * The hashCode of every element is kept next to it, so a probe compares ints and only calls equals on a match.
+ * Not thread safe.
+ */
+public class BucketizedCuckooHashSet<T> implements SimpleSet<T> {
+
+    private static final int SLOTS_PER_BUCKET = 4;
+    private static final int STASH_SIZE = 4;
+    private static final int MAX_DISPLACEMENTS = 500;
+
+    private final HashFamily hashFamily;
+    private Object[] stash;
+    // bucket b of table 0 is at [b * 4, b * 4 + 4), bucket b of table 1 at [(numberOfBuckets + b) * 4, ...)
+    private Object[] slots;
+    private int[] hashCodes;
+    private int numberOfBuckets;
+    private int mask;
+    private int stashSize;
+    private int size;
+
+    public BucketizedCuckooHashSet(final int capacity) {
+        this(capacity, HashFamilies.MURMUR3);
+    }
+
+    public BucketizedCuckooHashSet(final int capacity, final HashFamily hashFamily) {
+        this.hashFamily = hashFamily;
+        this.stash = new Object[STASH_SIZE];
+        int buckets = Math.max(capacity / (2 * SLOTS_PER_BUCKET), 1);
+        allocate(Integer.highestOneBit(buckets * 2 - 1));
+    }
+
+    @Override
+    public void add(final T element) {
+        if (contains(element)) {
+            return;
+        }
+        T homeless = putInTables(element, element.hashCode());
+        while (homeless != null) {
+            if (stashSize < STASH_SIZE || size - stashSize < slots.length / 2) {
+                stash(homeless);
+                break;
+            }
+            resize();
+            homeless = putInTables(homeless, homeless.hashCode());
+        }
+        size++;
+    }
+
+    @Override
+    public boolean contains(final T element) {
+        int hashCode = element.hashCode();
+        return indexOf(bucket0(hashCode), element, hashCode) >= 0
+            || indexOf(bucket1(hashCode), element, hashCode) >= 0
+            || indexInStash(element) >= 0;
+    }
+
+    @Override
+    public boolean remove(final T element) {
+        int hashCode = element.hashCode();
+        int index = indexOf(bucket0(hashCode), element, hashCode);
+        if (index < 0) {
+            index = indexOf(bucket1(hashCode), element, hashCode);
+        }
+        if (index >= 0) {
+            slots[index] = null;
+            size--;
+            return true;
+        }
+        index = indexInStash(element);
+        if (index >= 0) {
+            stash[index] = stash[--stashSize];
+            stash[stashSize] = null;
+            size--;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean removeIf(final Predicate<? super T> filter) {
+        boolean isRemoved = false;
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != null && filter.test((T) slots[i])) {
+                slots[i] = null;
+                size--;
+                isRemoved = true;
+            }
+        }
+        for (int i = stashSize - 1; i >= 0; i--) {
+            if (filter.test((T) stash[i])) {
+                stash[i] = stash[--stashSize];
+                stash[stashSize] = null;
+                size--;
+                isRemoved = true;
+            }
+        }
+        return isRemoved;
+    }
+
+    /**
+     * The slots, then the stash as one last bucket.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Spliterator<T> spliterator() {
+        Object[] table = slots;
+        Object[] stashed = Arrays.copyOf(stash, stashSize);
+        return new TableSpliterator<T>(table.length + 1, size,
+            Spliterator.SIZED | Spliterator.DISTINCT | Spliterator.NONNULL,
+            (i, action) -> {
+                if (i == table.length) {
+                    for (Object element : stashed) {
+                        action.accept((T) element);
+                    }
+                } else if (table[(int) i] != null) {
+                    action.accept((T) table[(int) i]);
+                }
+            });
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Share of the slots of the tables that are taken.
+     */
+    public double loadFactor() {
+        return (size - stashSize) / (double) slots.length;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(slots) + "\n" + Arrays.toString(Arrays.copyOf(stash, stashSize));
+    }
+
+    /**
+     * Random walk: when both buckets are full, evicts a random element of one of them, puts the element in its place
+     * and carries on with the evicted one, which goes to its other bucket.
+     * @return null if everything fitted, else the element left without a slot (not necessarily the given one)
+     */
+    @SuppressWarnings("unchecked")
+    private T putInTables(final T element, final int hashCode) {
+        if (putInBucket(bucket0(hashCode), element, hashCode) || putInBucket(bucket1(hashCode), element, hashCode)) {
+            return null;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        T toPlace = element;
+        int toPlaceHashCode = hashCode;
+        int bucket = random.nextBoolean() ? bucket0(hashCode) : bucket1(hashCode);
+        for (int i = 0; i < MAX_DISPLACEMENTS; i++) {
+            int index = bucket * SLOTS_PER_BUCKET + random.nextInt(SLOTS_PER_BUCKET);
+            T evicted = (T) slots[index];
+            int evictedHashCode = hashCodes[index];
+            slots[index] = toPlace;
+            hashCodes[index] = toPlaceHashCode;
+
+            toPlace = evicted;
+            toPlaceHashCode = evictedHashCode;
+            bucket = alternate(bucket, evictedHashCode);
+            if (putInBucket(bucket, toPlace, toPlaceHashCode)) {
+                return null;
+            }
+        }
+        return toPlace;
+    }
+
+    private boolean putInBucket(final int bucket, final T element, final int hashCode) {
+        int start = bucket * SLOTS_PER_BUCKET;
+        for (int i = start; i < start + SLOTS_PER_BUCKET; i++) {
+            if (slots[i] == null) {
+                slots[i] = element;
+                hashCodes[i] = hashCode;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int indexOf(final int bucket, final T element, final int hashCode) {
+        int start = bucket * SLOTS_PER_BUCKET;
+        for (int i = start; i < start + SLOTS_PER_BUCKET; i++) {
+            if (hashCodes[i] == hashCode && slots[i] != null && element.equals(slots[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexInStash(final T element) {
+        for (int i = 0; i < stashSize; i++) {
+            if (element.equals(stash[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void stash(final T element) {
+        if (stashSize == stash.length) {
+            stash = Arrays.copyOf(stash, stashSize * 2);
+        }
+        stash[stashSize++] = element;
+    }
+
+    /**
+     * Doubles the number of buckets and places every element again, stash included.
+     * The elements left without a slot go to the stash, the tables are not grown again.
+     */
+    @SuppressWarnings("unchecked")
+    private void resize() {
+        Object[] oldSlots = slots;
+        int[] oldHashCodes = hashCodes;
+        Object[] oldStash = Arrays.copyOf(stash, stashSize);
+        allocate(numberOfBuckets * 2);
+        stash = new Object[STASH_SIZE];
+        stashSize = 0;
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] != null)
+                rehash((T) oldSlots[i], oldHashCodes[i]);
+        }
+        for (Object element : oldStash) {
+            rehash((T) element, element.hashCode());
+        }
+    }
+
+    private void rehash(final T element, final int hashCode) {
+        T homeless = putInTables(element, hashCode);
+        if (homeless != null)
+            stash(homeless);
+    }
+
+    private void allocate(final int buckets) {
+        numberOfBuckets = buckets;
+        mask = buckets - 1;
+        slots = new Object[2 * buckets * SLOTS_PER_BUCKET];
+        hashCodes = new int[slots.length];
+    }
+
+    private int bucket0(final int hashCode) {
+        return hashFamily.hash(0, hashCode) & mask;
+    }
+
+    private int bucket1(final int hashCode) {
+        return numberOfBuckets + (hashFamily.hash(1, hashCode) & mask);
+    }
+
+    private int alternate(final int bucket, final int hashCode) {
+        return bucket < numberOfBuckets ? bucket1(hashCode) : bucket0(hashCode);
+    }
+}
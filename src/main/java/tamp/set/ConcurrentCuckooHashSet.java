@@ -0,0 +1,505 @@
+package tamp.set;
+
+import java.util.Spliterator;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+import tamp.metrics.Metrics;
+
+/**
+ * Concurrent cuckoo hashset, striped locks as in the phased cuckoo hashing of TAMP (chapter 13.4)
+ * with the displacement and read path of "optimistic cuckoo hashing" (MemC3).
+ *  - Each element has one slot in each of the two tables, each slot is guarded by a lock stripe.
+ *  - When both slots are taken, the path of displacements leading to a free slot is searched breadth first
+ *  without holding any lock, then executed backwards one move at a time, locking only the two stripes involved.
+ *  If the path changed in the meantime the insert starts over. So writers on other stripes keep going.
+ *  - Every stripe has a version counter, odd while a writer is changing one of its slots.
+ *  contains reads the counters, the two slots, then the counters again and retries if anything moved:
+ *  a read never writes to shared memory.
+ *  - When no path is found, the tables are doubled and every element is rehashed, under all the locks.
+ *  Unless the tables are less than half full (a quarter once the overflow has a few elements): then the
+ *  element collides with too many others for any table size to help (same hashCode), it goes to the
+ *  overflow list of the table, searched after the slots. So the tables only grow with the number of elements.
+ * The number of stripes is fixed at construction.
+ * With Metrics, reports the time waited on each stripe, the number of elements moved by each displacement path
+ * and how long each resize takes.
+ */
+public class ConcurrentCuckooHashSet<T> implements SimpleSet<T> {
+
+    private static final int MAX_STRIPES = 1024;
+    private static final int MAX_SEARCH = 256; // slots visited by the breadth first search
+    private static final int MAX_REHASH_TRIES = 64;
+    private static final int OVERFLOW_TO_GROW = 4; // overflow size from which a quarter full table is grown
+
+    private final ReentrantLock[] locks; // stripes of table 0 then stripes of table 1
+    private final AtomicLongArray versions;
+    private final int stripeMask;
+    private final AtomicInteger size;
+    private final HashFamily hashFamily;
+    private final Metrics metrics;
+    private volatile Table<T> table;
+
+    public ConcurrentCuckooHashSet(final int capacity) {
+        this(capacity, HashFamilies.MURMUR3, Metrics.NONE);
+    }
+
+    public ConcurrentCuckooHashSet(final int capacity, final Metrics metrics) {
+        this(capacity, HashFamilies.MURMUR3, metrics);
+    }
+
+    public ConcurrentCuckooHashSet(final int capacity, final HashFamily hashFamily) {
+        this(capacity, hashFamily, Metrics.NONE);
+    }
+
+    public ConcurrentCuckooHashSet(final int capacity, final HashFamily hashFamily, final Metrics metrics) {
+        this.hashFamily = hashFamily;
+        this.metrics = metrics;
+        int tableSize = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1);
+        int numberOfStripes = Math.min(tableSize, MAX_STRIPES);
+        stripeMask = numberOfStripes - 1;
+        locks = new ReentrantLock[numberOfStripes * 2];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        versions = new AtomicLongArray(numberOfStripes * 2);
+        size = new AtomicInteger();
+        table = new Table<>(tableSize, hashFamily);
+    }
+
+    @Override
+    public boolean contains(final T element) {
+        int hash = element.hashCode();
+        while (true) {
+            Table<T> current = table;
+            int slot0 = current.slot0(hash);
+            int slot1 = current.slot1(hash);
+            int stripe0 = stripe(current, slot0);
+            int stripe1 = stripe(current, slot1);
+            long version0 = versions.get(stripe0);
+            long version1 = versions.get(stripe1);
+            if (((version0 | version1) & 1) != 0) {
+                continue; // a writer is in the middle of it
+            }
+            boolean found = element.equals(current.slots.get(slot0))
+                || element.equals(current.slots.get(slot1))
+                || !current.overflow.isEmpty() && current.overflow.contains(element);
+            if (versions.get(stripe0) == version0 && versions.get(stripe1) == version1 && current == table) {
+                return found;
+            }
+        }
+    }
+
+    @Override
+    public void add(final T element) {
+        if (contains(element)) {
+            return;
+        }
+        int hash = element.hashCode();
+        while (true) {
+            Table<T> current = table;
+            int slot0 = current.slot0(hash);
+            int slot1 = current.slot1(hash);
+            int stripe0 = stripe(current, slot0);
+            int stripe1 = stripe(current, slot1);
+            lock(stripe0, stripe1);
+            try {
+                if (current != table) {
+                    continue; // resized
+                }
+                if (element.equals(current.slots.get(slot0)) || element.equals(current.slots.get(slot1))
+                    || current.overflow.contains(element)) {
+                    return;
+                }
+                if (current.slots.get(slot0) == null) {
+                    write(current, stripe0, slot0, element);
+                    size.incrementAndGet();
+                    return;
+                }
+                if (current.slots.get(slot1) == null) {
+                    write(current, stripe1, slot1, element);
+                    size.incrementAndGet();
+                    return;
+                }
+            } finally {
+                unlock(stripe0, stripe1);
+            }
+
+            // both slots are taken, make room and try again
+            int[] path = searchPath(current, slot0, slot1);
+            if (path == null) {
+                if (shouldGrow(current)) {
+                    resize(current);
+                } else if (addToOverflow(current, element, slot0, slot1)) {
+                    return;
+                }
+            } else {
+                metrics.displacement(path.length - 1);
+                displace(current, path);
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(final T element) {
+        int hash = element.hashCode();
+        while (true) {
+            Table<T> current = table;
+            int slot0 = current.slot0(hash);
+            int slot1 = current.slot1(hash);
+            int stripe0 = stripe(current, slot0);
+            int stripe1 = stripe(current, slot1);
+            lock(stripe0, stripe1);
+            try {
+                if (current != table) {
+                    continue;
+                }
+                if (element.equals(current.slots.get(slot0))) {
+                    write(current, stripe0, slot0, null);
+                } else if (element.equals(current.slots.get(slot1))) {
+                    write(current, stripe1, slot1, null);
+                } else if (!current.overflow.remove(element)) {
+                    return false;
+                }
+                size.decrementAndGet();
+                return true;
+            } finally {
+                unlock(stripe0, stripe1);
+            }
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public int capacity() {
+        return table.size;
+    }
+
+    /**
+     * Scans the slots and removes the accepted elements one by one,
+     * elements added or moved by a resize during the scan may or may not be seen.
+     */
+    @Override
+    public boolean removeIf(final Predicate<? super T> filter) {
+        boolean isRemoved = false;
+        Table<T> current = table;
+        for (int i = 0; i < current.slots.length(); i++) {
+            T element = current.slots.get(i);
+            if (element != null && filter.test(element)) {
+                isRemoved |= remove(element);
+            }
+        }
+        for (T element : current.overflow) {
+            if (filter.test(element)) {
+                isRemoved |= remove(element);
+            }
+        }
+        return isRemoved;
+    }
+
+    /**
+     * Over a copy of the slots taken under all the locks: a displacement can move an element
+     * from behind a running scan to ahead of it, which would then see it twice.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Spliterator<T> spliterator() {
+        Object[] snapshot;
+        int count = 0;
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+        try {
+            AtomicReferenceArray<T> slots = table.slots;
+            Object[] overflow = table.overflow.toArray();
+            snapshot = new Object[slots.length() + overflow.length];
+            for (int i = 0; i < slots.length(); i++) {
+                snapshot[i] = slots.get(i);
+                if (snapshot[i] != null) {
+                    count++;
+                }
+            }
+            System.arraycopy(overflow, 0, snapshot, slots.length(), overflow.length);
+            count += overflow.length;
+        } finally {
+            for (ReentrantLock lock : locks) {
+                lock.unlock();
+            }
+        }
+        return new TableSpliterator<T>(snapshot.length, count,
+            Spliterator.SIZED | Spliterator.DISTINCT | Spliterator.NONNULL,
+            (i, action) -> {
+                if (snapshot[(int) i] != null) {
+                    action.accept((T) snapshot[(int) i]);
+                }
+            });
+    }
+
+    @Override
+    public String toString() {
+        return table.slots + " " + table.overflow;
+    }
+
+    /**
+     * Doubling only helps when the tables are filling up: past half full,
+     * or past a quarter full once the overflow has a few elements.
+     */
+    private boolean shouldGrow(final Table<T> current) {
+        int elements = size.get();
+        return elements >= current.size
+            || current.overflow.size() >= OVERFLOW_TO_GROW && elements >= current.size / 2;
+    }
+
+    /**
+     * Last resort for an element without any displacement path, both of its slots are checked again under their locks.
+     * @return false if the table was resized in the meantime, the caller starts over
+     */
+    private boolean addToOverflow(final Table<T> current, final T element, final int slot0, final int slot1) {
+        int stripe0 = stripe(current, slot0);
+        int stripe1 = stripe(current, slot1);
+        lock(stripe0, stripe1);
+        try {
+            if (current != table) {
+                return false;
+            }
+            if (element.equals(current.slots.get(slot0)) || element.equals(current.slots.get(slot1))) {
+                return true;
+            }
+            if (current.slots.get(slot0) == null) {
+                write(current, stripe0, slot0, element);
+            } else if (current.slots.get(slot1) == null) {
+                write(current, stripe1, slot1, element);
+            } else if (!current.overflow.addIfAbsent(element)) {
+                return true;
+            }
+            size.incrementAndGet();
+            return true;
+        } finally {
+            unlock(stripe0, stripe1);
+        }
+    }
+
+    /**
+     * Breadth first search, over the current content of the table, for the shortest chain of displacements
+     * ending on a free slot.
+     * @return the slots of the chain, from one of the two starting slots to the free one, null if none was found
+     */
+    private int[] searchPath(final Table<T> current, final int slot0, final int slot1) {
+        int[] slots = new int[MAX_SEARCH];
+        int[] parents = new int[MAX_SEARCH];
+        slots[0] = slot0;
+        parents[0] = -1;
+        slots[1] = slot1;
+        parents[1] = -1;
+        int tail = 2;
+        for (int head = 0; head < tail; head++) {
+            T element = current.slots.get(slots[head]);
+            if (element == null) {
+                return path(slots, parents, head);
+            }
+            if (tail == MAX_SEARCH) {
+                continue; // no more room to explore, only check the pending ones
+            }
+            slots[tail] = current.alternate(element, slots[head]);
+            parents[tail] = head;
+            tail++;
+        }
+        return null;
+    }
+
+    private static int[] path(final int[] slots, final int[] parents, final int end) {
+        int length = 0;
+        for (int node = end; node != -1; node = parents[node]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int node = end; node != -1; node = parents[node]) {
+            path[--length] = slots[node];
+        }
+        return path;
+    }
+
+    /**
+     * Moves the elements along the path starting from the end, so that there is always a free slot to move into.
+     * Gives up as soon as a slot does not hold what the search saw, the caller starts over.
+     */
+    private void displace(final Table<T> current, final int[] path) {
+        for (int i = path.length - 2; i >= 0; i--) {
+            int from = path[i];
+            int to = path[i + 1];
+            int fromStripe = stripe(current, from);
+            int toStripe = stripe(current, to);
+            lock(fromStripe, toStripe);
+            try {
+                T element = current.slots.get(from);
+                if (current != table
+                    || element == null
+                    || current.slots.get(to) != null
+                    || current.alternate(element, from) != to) {
+                    return;
+                }
+                versions.incrementAndGet(fromStripe);
+                if (toStripe != fromStripe) {
+                    versions.incrementAndGet(toStripe);
+                }
+                current.slots.set(to, element);
+                current.slots.set(from, null);
+                versions.incrementAndGet(fromStripe);
+                if (toStripe != fromStripe) {
+                    versions.incrementAndGet(toStripe);
+                }
+            } finally {
+                unlock(fromStripe, toStripe);
+            }
+        }
+    }
+
+    /**
+     * Stop the world: doubles the tables and rehashes everything, the overflow included.
+     */
+    private void resize(final Table<T> expected) {
+        long start = metrics.enabled() ? System.nanoTime() : 0;
+        for (int i = 0; i < locks.length; i++) {
+            lock(i);
+        }
+        try {
+            if (expected != table) {
+                return; // someone else resized in the meantime
+            }
+            for (int i = 0; i < versions.length(); i++) {
+                versions.incrementAndGet(i);
+            }
+            table = rehash(expected, expected.size * 2);
+            for (int i = 0; i < versions.length(); i++) {
+                versions.incrementAndGet(i);
+            }
+            if (metrics.enabled()) {
+                metrics.resize(System.nanoTime() - start);
+            }
+        } finally {
+            for (ReentrantLock lock : locks) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * The elements left without a slot go to the overflow of the new table.
+     */
+    private Table<T> rehash(final Table<T> old, final int newSize) {
+        Table<T> resized = new Table<>(newSize, hashFamily);
+        for (int i = 0; i < old.slots.length(); i++) {
+            T element = old.slots.get(i);
+            if (element != null) {
+                place(resized, element);
+            }
+        }
+        for (T element : old.overflow) {
+            place(resized, element);
+        }
+        return resized;
+    }
+
+    /**
+     * Plain single threaded cuckoo insert, used while holding all the locks.
+     * The element evicted last goes to the overflow if the walk does not end on a free slot.
+     */
+    private static <T> void place(final Table<T> resized, final T element) {
+        T toPlace = element;
+        int slot = ThreadLocalRandom.current().nextBoolean()
+            ? resized.slot0(toPlace.hashCode())
+            : resized.slot1(toPlace.hashCode());
+        for (int i = 0; i < MAX_REHASH_TRIES; i++) {
+            T evicted = resized.slots.get(slot);
+            resized.slots.set(slot, toPlace);
+            if (evicted == null) {
+                return;
+            }
+            toPlace = evicted;
+            slot = resized.alternate(toPlace, slot);
+        }
+        resized.overflow.add(toPlace);
+    }
+
+    private void write(final Table<T> current, final int stripe, final int slot, final T element) {
+        versions.incrementAndGet(stripe);
+        current.slots.set(slot, element);
+        versions.incrementAndGet(stripe);
+    }
+
+    private int stripe(final Table<T> current, final int slot) {
+        return slot < current.size
+            ? slot & stripeMask
+            : (stripeMask + 1) + ((slot - current.size) & stripeMask);
+    }
+
+    /**
+     * Always in the same order to avoid deadlocks.
+     */
+    private void lock(final int stripe0, final int stripe1) {
+        lock(Math.min(stripe0, stripe1));
+        if (stripe0 != stripe1) {
+            lock(Math.max(stripe0, stripe1));
+        }
+    }
+
+    /**
+     * The clock is only read when metrics are on and the lock is taken.
+     */
+    private void lock(final int stripe) {
+        if (!metrics.enabled()) {
+            locks[stripe].lock();
+        } else if (!locks[stripe].tryLock()) {
+            long start = System.nanoTime();
+            locks[stripe].lock();
+            metrics.lockWait(stripe, System.nanoTime() - start);
+        }
+    }
+
+    private void unlock(final int stripe0, final int stripe1) {
+        if (stripe0 != stripe1) {
+            locks[Math.max(stripe0, stripe1)].unlock();
+        }
+        locks[Math.min(stripe0, stripe1)].unlock();
+    }
+
+    /**
+     * Both tables in one array: table 0 in [0, size), table 1 in [size, 2 * size).
+     * The overflow holds the elements no displacement could place, written under the locks of their own slots.
+     */
+    static final class Table<T> {
+        final AtomicReferenceArray<T> slots;
+        final CopyOnWriteArrayList<T> overflow = new CopyOnWriteArrayList<>();
+        final int size;
+        final int mask;
+        final HashFamily hashFamily;
+
+        Table(final int size, final HashFamily hashFamily) {
+            this.size = size;
+            this.hashFamily = hashFamily;
+            this.mask = size - 1;
+            this.slots = new AtomicReferenceArray<>(size * 2);
+        }
+
+        int slot0(final int hashCode) {
+            return hashFamily.hash(0, hashCode) & mask;
+        }
+
+        int slot1(final int hashCode) {
+            return size + (hashFamily.hash(1, hashCode) & mask);
+        }
+
+        /**
+         * @return the other slot the element can live in
+         */
+        int alternate(final T element, final int slot) {
+            return slot < size ? slot1(element.hashCode()) : slot0(element.hashCode());
+        }
+    }
+}
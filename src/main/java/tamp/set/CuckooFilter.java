@@ -0,0 +1,283 @@
+package tamp.set;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import tamp.counter.StripedCounter;
+
+/**
+ * Concurrent cuckoo filter (Fan et al. "Cuckoo Filter: Practically Better Than Bloom"), approximate membership:
+ * contains never answers false for an element that was added, and answers true for an absent one
+ * with the configured false positive rate.
+ *  - Only a fingerprint of each element is stored, in buckets of 4 fingerprints of 4, 8 or 16 bits.
+ *  A bucket never spans two longs of the packed long[], so every change of a bucket is a CAS on a single word.
+ *  - The two buckets of an element are i1 = hash(element) and i2 = i1 ^ hash(fingerprint), so either one
+ *  is found from the other and the fingerprint alone, which is what lets fingerprints be displaced.
+ *  - When both buckets are full, a path of displacements is looked for as in CuckooHashSet, then executed backwards:
+ *  each fingerprint is first copied to its other bucket and only then cleared from the one it leaves,
+ *  so a fingerprint is always in at least one of its buckets.
+ *  - Every move bumps a counter, contains and remove check both buckets again if it changed,
+ *  because a fingerprint may have gone from the bucket not yet checked to the one already checked.
+ * The filter has a fixed capacity, an add that does not fit throws an IllegalStateException.
+ * An element added twice has to be removed twice, and only elements that were added may be removed,
+ * removing any other one could remove the fingerprint of an element that collides with it.
+ * Only a MembershipSet: the elements themselves are not kept, so they can not be enumerated.
+ */
+public class CuckooFilter<T> implements MembershipSet<T> {
+
+    private static final int SLOTS_PER_BUCKET = 4;
+    private static final double MAX_LOAD_FACTOR = 0.95;
+    private static final int MAX_DISPLACEMENTS = 500;
+    private static final int MAX_RETRIES = 16;
+
+    private final HashFamily hashFamily;
+    private final AtomicLongArray words;
+    private final AtomicLong moves;
+    private final StripedCounter size;
+    private final int fingerprintBits;
+    private final long fingerprintMask;
+    private final int bucketBits;
+    private final int bucketsPerWordShift;
+    private final int bucketMask;
+
+    public CuckooFilter(final long expectedElements, final double falsePositiveRate) {
+        this(expectedElements, falsePositiveRate, HashFamilies.MURMUR3);
+    }
+
+    /**
+     * @param expectedElements number of elements the filter has to hold
+     * @param falsePositiveRate upper bound on the share of absent elements contains answers true for,
+     *                          from 8 / (2^16 - 1) with 16 bits fingerprints, 8 bits ones are enough above 8 / 255
+     */
+    public CuckooFilter(final long expectedElements, final double falsePositiveRate, final HashFamily hashFamily) {
+        if (expectedElements <= 0) {
+            throw new IllegalArgumentException("expectedElements must be positive: " + expectedElements);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("falsePositiveRate must be in ]0, 1[: " + falsePositiveRate);
+        }
+        this.hashFamily = hashFamily;
+        // a lookup compares against 2 buckets of 4 fingerprints, each matching with probability 1 / (2^f - 1)
+        fingerprintBits = fingerprintBitsFor(falsePositiveRate);
+        fingerprintMask = (1L << fingerprintBits) - 1;
+        bucketBits = fingerprintBits * SLOTS_PER_BUCKET;
+        bucketsPerWordShift = Integer.numberOfTrailingZeros(Long.SIZE / bucketBits);
+
+        long neededBuckets = (long) Math.ceil(expectedElements / (SLOTS_PER_BUCKET * MAX_LOAD_FACTOR));
+        if (neededBuckets > 1 << 30) {
+            throw new IllegalArgumentException("too many elements: " + expectedElements);
+        }
+        int numberOfBuckets = Integer.highestOneBit((int) Math.max(neededBuckets, 2) * 2 - 1);
+        bucketMask = numberOfBuckets - 1;
+        words = new AtomicLongArray(Math.max(numberOfBuckets >>> bucketsPerWordShift, 1));
+        moves = new AtomicLong();
+        size = new StripedCounter();
+    }
+
+    @Override
+    public void add(final T element) {
+        int hashCode = element.hashCode();
+        long fingerprint = fingerprint(hashCode);
+        int bucket1 = bucket(hashCode);
+        int bucket2 = alternate(bucket1, fingerprint);
+        for (int retry = 0; retry < MAX_RETRIES; retry++) {
+            if (insert(bucket1, fingerprint) || insert(bucket2, fingerprint)) {
+                size.increment();
+                return;
+            }
+            makeRoom(ThreadLocalRandom.current().nextBoolean() ? bucket1 : bucket2);
+        }
+        throw new IllegalStateException("filter is full, size: " + size.sum());
+    }
+
+    @Override
+    public boolean contains(final T element) {
+        int hashCode = element.hashCode();
+        long fingerprint = fingerprint(hashCode);
+        int bucket1 = bucket(hashCode);
+        int bucket2 = alternate(bucket1, fingerprint);
+        while (true) {
+            long before = moves.get();
+            if (find(words.get(wordIndex(bucket1)), bucket1, fingerprint) >= 0
+                || find(words.get(wordIndex(bucket2)), bucket2, fingerprint) >= 0) {
+                return true;
+            }
+            if (moves.get() == before) {
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(final T element) {
+        int hashCode = element.hashCode();
+        long fingerprint = fingerprint(hashCode);
+        int bucket1 = bucket(hashCode);
+        int bucket2 = alternate(bucket1, fingerprint);
+        while (true) {
+            long before = moves.get();
+            if (delete(bucket1, fingerprint) || delete(bucket2, fingerprint)) {
+                size.decrement();
+                return true;
+            }
+            if (moves.get() == before) {
+                return false;
+            }
+        }
+    }
+
+    public long size() {
+        return size.sum();
+    }
+
+    /**
+     * Number of fingerprints the filter can hold.
+     */
+    public long capacity() {
+        return ((long) bucketMask + 1) * SLOTS_PER_BUCKET;
+    }
+
+    public int fingerprintBits() {
+        return fingerprintBits;
+    }
+
+    /**
+     * Upper bound of the false positive rate once the filter is full.
+     */
+    public double expectedFalsePositiveRate() {
+        return 2.0 * SLOTS_PER_BUCKET / fingerprintMask;
+    }
+
+    /**
+     * Random walk from a full bucket until a bucket with a free slot, recording the slots and fingerprints seen,
+     * then moves the fingerprints one step each, starting from the end of the path.
+     * Any change made by another thread in the meantime makes a move fail and the path is dropped,
+     * the caller tries again.
+     */
+    private void makeRoom(final int startBucket) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int[] buckets = new int[MAX_DISPLACEMENTS];
+        int[] slots = new int[MAX_DISPLACEMENTS];
+        long[] fingerprints = new long[MAX_DISPLACEMENTS];
+        int bucket = startBucket;
+        int length = 0;
+        while (length < MAX_DISPLACEMENTS) {
+            long word = words.get(wordIndex(bucket));
+            if (find(word, bucket, 0) >= 0) {
+                break;
+            }
+            int slot = random.nextInt(SLOTS_PER_BUCKET);
+            buckets[length] = bucket;
+            slots[length] = slot;
+            fingerprints[length] = (word >>> shift(bucket, slot)) & fingerprintMask;
+            bucket = alternate(bucket, fingerprints[length]);
+            length++;
+        }
+        if (length == MAX_DISPLACEMENTS) {
+            return;
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            if (!move(buckets[i], slots[i], fingerprints[i])) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Copies the fingerprint to its other bucket, then clears it from the given slot, undoing the copy
+     * if the slot does not hold it anymore.
+     */
+    private boolean move(final int bucket, final int slot, final long fingerprint) {
+        int target = alternate(bucket, fingerprint);
+        if (!insert(target, fingerprint)) {
+            return false;
+        }
+        moves.incrementAndGet();
+        int index = wordIndex(bucket);
+        long clear = ~(fingerprintMask << shift(bucket, slot));
+        while (true) {
+            long word = words.get(index);
+            if (((word >>> shift(bucket, slot)) & fingerprintMask) != fingerprint) {
+                delete(target, fingerprint);
+                return false;
+            }
+            if (words.compareAndSet(index, word, word & clear)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean insert(final int bucket, final long fingerprint) {
+        int index = wordIndex(bucket);
+        while (true) {
+            long word = words.get(index);
+            int slot = find(word, bucket, 0);
+            if (slot < 0) {
+                return false;
+            }
+            if (words.compareAndSet(index, word, word | fingerprint << shift(bucket, slot))) {
+                return true;
+            }
+        }
+    }
+
+    private boolean delete(final int bucket, final long fingerprint) {
+        int index = wordIndex(bucket);
+        while (true) {
+            long word = words.get(index);
+            int slot = find(word, bucket, fingerprint);
+            if (slot < 0) {
+                return false;
+            }
+            if (words.compareAndSet(index, word, word & ~(fingerprintMask << shift(bucket, slot)))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return the first slot of the bucket holding the fingerprint, 0 being an empty slot, or -1
+     */
+    private int find(final long word, final int bucket, final long fingerprint) {
+        for (int slot = 0; slot < SLOTS_PER_BUCKET; slot++) {
+            if (((word >>> shift(bucket, slot)) & fingerprintMask) == fingerprint) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int wordIndex(final int bucket) {
+        return bucket >>> bucketsPerWordShift;
+    }
+
+    private int shift(final int bucket, final int slot) {
+        return (bucket & ((1 << bucketsPerWordShift) - 1)) * bucketBits + slot * fingerprintBits;
+    }
+
+    private int bucket(final int hashCode) {
+        return hashFamily.hash(0, hashCode) & bucketMask;
+    }
+
+    private int alternate(final int bucket, final long fingerprint) {
+        return (bucket ^ hashFamily.hash(0, (int) fingerprint)) & bucketMask;
+    }
+
+    /**
+     * Never 0, which marks an empty slot.
+     */
+    private long fingerprint(final int hashCode) {
+        long fingerprint = hashFamily.hash(1, hashCode) & fingerprintMask;
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    private static int fingerprintBitsFor(final double falsePositiveRate) {
+        for (int bits = 4; bits <= 16; bits *= 2) {
+            if (2.0 * SLOTS_PER_BUCKET / ((1 << bits) - 1) <= falsePositiveRate) {
+                return bits;
+            }
+        }
+        throw new IllegalArgumentException("falsePositiveRate too low for 16 bits fingerprints: " + falsePositiveRate);
+    }
+}
@@ -1,117 +1,213 @@
 package tamp.set;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Predicate;
 
 /**
  * Example of a simple hashSet using the open addressing technique of the Cuckoo hasing.
+ * The tables have a power of 2 size so that a slot is a mask of the hash,
+ * the hashes come out of a pluggable {@link HashFamily}.
+ * An element evicted MAX_TRIES times goes to an overflow list instead of doubling the tables
+ * while they are less than half full (a quarter once the overflow has a few elements):
+ * elements sharing a hashCode would otherwise grow them forever.
  */
 public class CuckooHashSet<T> implements SimpleSet<T> {
 
     private static final int MAX_TRIES = 4;
-    private static final HashFunction H0 = Hashing.md5();
-    private static final HashFunction H1 = Hashing.adler32();
+    private static final int OVERFLOW_TO_GROW = 4;
 
+    private final HashFamily hashFamily;
     private T table0[];
     private T table1[];
+    private final List<T> overflow = new ArrayList<>();
+    private int count;
     private int size;
+    private int mask;
 
     public CuckooHashSet(int size) {
-        this.size = size;
-        table0 = (T[]) new Object[size];
-        table1 = (T[]) new Object[size];
+        this(size, HashFamilies.MURMUR3);
+    }
+
+    public CuckooHashSet(int size, HashFamily hashFamily) {
+        this.hashFamily = hashFamily;
+        this.size = Integer.highestOneBit(Math.max(size, 1) * 2 - 1); // next power of 2
+        this.mask = this.size - 1;
+        table0 = (T[]) new Object[this.size];
+        table1 = (T[]) new Object[this.size];
     }
 
     @Override
     public void add(T element) {
         if (contains(element))
             return;
-        T swapped = null;
-        for (int i = 0; i < MAX_TRIES; i++) {
-            swapped = swap((swapped == null ? element: swapped));
-            if (swapped == null) {
-                return;
+        count++;
+        T homeless = place(element);
+        while (homeless != null) {
+            if (count >= size || overflow.size() >= OVERFLOW_TO_GROW && count >= size / 2) {
+                resize();
+                homeless = place(homeless);
+            } else {
+                overflow.add(homeless);
+                homeless = null;
             }
         }
-        resize();
-        add(element);
     }
 
     @Override
     public boolean contains(T element) {
-        int hash0 = Math.abs(H0.newHasher()
-            .putInt(element.hashCode())
-            .hash()
-            .asInt()) % size;
-        int hash1 = Math.abs(H1.newHasher()
-            .putInt(element.hashCode())
-            .hash()
-            .asInt()) % size;
-        return element.equals(table0[hash0])|| element.equals(table1[hash1]);
+        int hashCode = element.hashCode();
+        return element.equals(table0[slot0(hashCode)]) || element.equals(table1[slot1(hashCode)])
+            || !overflow.isEmpty() && overflow.contains(element);
     }
 
     @Override
     public boolean remove(T element) {
-
-        int hash0 = Math.abs(H0.newHasher()
-        .putInt(element.hashCode())
-        .hash()
-        .asInt()) % size;
-        int hash1 = Math.abs(H1.newHasher()
-            .putInt(element.hashCode())
-            .hash()
-            .asInt()) % size;
+        int hashCode = element.hashCode();
+        int hash0 = slot0(hashCode);
         if (element.equals(table0[hash0])) {
-                table0[hash0] = null;
-                return true;
-        } else if (element.equals(table1[hash1])) {
-                table1[hash1] = null;
-                return true;
+            table0[hash0] = null;
+            count--;
+            return true;
+        }
+        int hash1 = slot1(hashCode);
+        if (element.equals(table1[hash1])) {
+            table1[hash1] = null;
+            count--;
+            return true;
+        }
+        if (overflow.remove(element)) {
+            count--;
+            return true;
         }
         return false;
     }
 
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        int removed = removeIf(table0, filter) + removeIf(table1, filter);
+        int overflowSize = overflow.size();
+        overflow.removeIf(filter);
+        removed += overflowSize - overflow.size();
+        count -= removed;
+        return removed > 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int capacity() {
+        return size;
+    }
+
+    /**
+     * The estimate is the number of slots, the overflow comes after them.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Spliterator<T> spliterator() {
+        T[] slots0 = table0;
+        T[] slots1 = table1;
+        Object[] stash = overflow.toArray();
+        long length = slots0.length * 2L + stash.length;
+        return new TableSpliterator<>(length, length, Spliterator.DISTINCT | Spliterator.NONNULL,
+            (i, action) -> {
+                T element = i < slots0.length ? slots0[(int) i]
+                    : i < slots0.length * 2L ? slots1[(int) i - slots0.length]
+                    : (T) stash[(int) i - slots0.length * 2];
+                if (element != null)
+                    action.accept(element);
+            });
+    }
+
     @Override
     public String toString() {
         return Arrays.toString(table0)
-            + "\n" + Arrays.toString(table1);
+            + "\n" + Arrays.toString(table1)
+            + "\n" + overflow;
     }
 
+    /**
+     * The slots depend on the size, so every element has to be placed again.
+     * The elements left without a slot go back to the overflow.
+     */
+    @SuppressWarnings("unchecked")
     private void resize() {
-        int newSize = size * 2;
-        T newTable0[] = (T[]) new Object[newSize];
-        T newTable1[] = (T[]) new Object[newSize];
-        for (int i = 0; i < size; i++) {
-            newTable0[i] = table0[i];
-            newTable1[i] = table1[i];
+        T oldTable0[] = table0;
+        T oldTable1[] = table1;
+        List<T> oldOverflow = new ArrayList<>(overflow);
+        overflow.clear();
+        size = size * 2;
+        mask = size - 1;
+        table0 = (T[]) new Object[size];
+        table1 = (T[]) new Object[size];
+        for (T element : oldTable0) {
+            if (element != null)
+                rehash(element);
+        }
+        for (T element : oldTable1) {
+            if (element != null)
+                rehash(element);
+        }
+        for (T element : oldOverflow) {
+            rehash(element);
         }
-        table0 = newTable0;
-        table1 = newTable1;
-        size = newSize;
     }
 
-    private T swap(T element) {
+    private void rehash(T element) {
+        T homeless = place(element);
+        if (homeless != null)
+            overflow.add(homeless);
+    }
+
+    /**
+     * @return the element evicted last if there was still no free slot after MAX_TRIES swaps, null otherwise
+     */
+    private T place(T element) {
+        T swapped = null;
+        for (int i = 0; i < MAX_TRIES; i++) {
+            swapped = swap((swapped == null ? element: swapped));
+            if (swapped == null) {
+                return null;
+            }
+        }
+        return swapped;
+    }
 
-        int hash = Math.abs(H0.newHasher()
-            .putInt(element.hashCode())
-            .hash()
-            .asInt()) % size;
+    private static <T> int removeIf(T[] table, Predicate<? super T> filter) {
+        int removed = 0;
+        for (int i = 0; i < table.length; i++) {
+            if (table[i] != null && filter.test(table[i])) {
+                table[i] = null;
+                removed++;
+            }
+        }
+        return removed;
+    }
 
+    private T swap(T element) {
+        int hash = slot0(element.hashCode());
         T moved = table0[hash];
         table0[hash] = element;
 
         if (moved == null) {
             return null;
         } else {
-            int movedHash = Math.abs(H1.newHasher()
-                .putInt(moved.hashCode())
-                .hash()
-                .asInt()) % size;
+            int movedHash = slot1(moved.hashCode());
             T evicted = table1[movedHash];
             table1[movedHash] = moved;
             return evicted;
         }
     }
+
+    private int slot0(int hashCode) {
+        return hashFamily.hash(0, hashCode) & mask;
+    }
+
+    private int slot1(int hashCode) {
+        return hashFamily.hash(1, hashCode) & mask;
+    }
 }
@@ -0,0 +1,63 @@
+package tamp.set;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Available hash families, the two first ones are a few multiplications and shifts on a register,
+ * no allocation.
+ * Each family has FUNCTIONS functions, numbered from 0.
+ */
+public enum HashFamilies implements HashFamily {
+
+    /**
+     * murmur3 32 bits finalizer over the seeded hashCode.
+     */
+    MURMUR3 {
+        @Override
+        public int hash(final int function, final int hashCode) {
+            int h = hashCode ^ SEEDS[function];
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            h ^= h >>> 16;
+            return h;
+        }
+    },
+
+    /**
+     * wyhash style multiply-shift: a single 64 bits multiplication, keeping the well mixed high half.
+     */
+    MULTIPLY_SHIFT {
+        @Override
+        public int hash(final int function, final int hashCode) {
+            long h = ((hashCode ^ SEEDS[function]) & 0xFFFFFFFFL) * MULTIPLIERS[function];
+            return (int) (h >>> 32) ^ (int) h;
+        }
+    },
+
+    /**
+     * What CuckooHashSet used to do: md5 then adler32, with a Hasher allocated per call.
+     * The functions past those two hash the seed after the hashCode. Only kept to measure against.
+     */
+    GUAVA {
+        @Override
+        public int hash(final int function, final int hashCode) {
+            Hasher hasher = GUAVA_FUNCTIONS[function & 1].newHasher()
+                .putInt(hashCode);
+            if (function > 1) {
+                hasher.putInt(SEEDS[function]);
+            }
+            return hasher.hash().asInt();
+        }
+    };
+
+    public static final int FUNCTIONS = 4;
+
+    private static final int[] SEEDS = {0x00000000, 0x9E3779B9, 0x7F4A7C15, 0x6A09E667};
+    private static final long[] MULTIPLIERS = {
+        0xa0761d6478bd642fL, 0xe7037ed1a0b428dbL, 0x8ebc6af09c88c6e3L, 0x589965cc75374cc3L};
+    private static final HashFunction[] GUAVA_FUNCTIONS = {Hashing.md5(), Hashing.adler32()};
+}
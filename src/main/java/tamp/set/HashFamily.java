@@ -0,0 +1,15 @@
+package tamp.set;
+
+/**
+ * A family of independent hash functions, as needed by cuckoo hashing: function 0 for the first table,
+ * function 1 for the second one, and so on.
+ * The result is meant to be masked with (table size - 1), so the low bits have to depend on the whole input.
+ */
+public interface HashFamily {
+
+    /**
+     * @param function index of the function in the family, below HashFamilies.FUNCTIONS for the provided ones
+     * @param hashCode hashCode of the element
+     */
+    public int hash(int function, int hashCode);
+}
@@ -0,0 +1,231 @@
+package tamp.set;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Predicate;
+
+/**
+ * Open addressing set of primitive ints with linear probing.
+ * The elements live directly in a flat int[], 0 marks an empty slot (the 0 element itself is kept aside in a flag)
+ * so there is no boxing and no object per entry.
+ * A remove shifts back the rest of the probe sequence instead of leaving a tombstone,
+ * so lookups never get slower after removes.
+ * Not thread safe.
+ */
+public class IntHashSet implements SimpleSet<Integer> {
+
+    private static final int EMPTY = 0;
+    private static final int MAX_CAPACITY = 1 << 30; // largest power of 2 an int holds
+
+    private int[] elements;
+    private int mask;
+    private int size;
+    private boolean containsEmpty;
+
+    /**
+     * @throws IllegalArgumentException if capacity is above 2^30
+     */
+    public IntHashSet(final int capacity) {
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be at most 2^30: " + capacity);
+        }
+        int tableSize = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1); // next power of 2
+        elements = new int[tableSize];
+        mask = tableSize - 1;
+    }
+
+    public void add(final int element) {
+        if (element == EMPTY) {
+            if (!containsEmpty) {
+                containsEmpty = true;
+                size++;
+            }
+            return;
+        }
+        int index = hash(element) & mask;
+        while (elements[index] != EMPTY) {
+            if (elements[index] == element) {
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        elements[index] = element;
+        size++;
+
+        if (size > elements.length / 2) {
+            resize();
+        }
+    }
+
+    public boolean remove(final int element) {
+        if (element == EMPTY) {
+            boolean isRemoved = containsEmpty;
+            if (isRemoved) {
+                containsEmpty = false;
+                size--;
+            }
+            return isRemoved;
+        }
+        int index = hash(element) & mask;
+        while (elements[index] != element) {
+            if (elements[index] == EMPTY) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        shiftBack(index);
+        size--;
+        return true;
+    }
+
+    public boolean contains(final int element) {
+        if (element == EMPTY) {
+            return containsEmpty;
+        }
+        int index = hash(element) & mask;
+        while (elements[index] != EMPTY) {
+            if (elements[index] == element) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    @Override
+    public void add(final Integer element) {
+        add(element.intValue());
+    }
+
+    @Override
+    public boolean remove(final Integer element) {
+        return remove(element.intValue());
+    }
+
+    @Override
+    public boolean contains(final Integer element) {
+        return contains(element.intValue());
+    }
+
+    /**
+     * A remove shifts elements back, so the accepted ones are collected first and removed afterwards.
+     */
+    @Override
+    public boolean removeIf(final Predicate<? super Integer> filter) {
+        int[] accepted = new int[16];
+        int count = 0;
+        if (containsEmpty && filter.test(EMPTY)) {
+            accepted[count++] = EMPTY;
+        }
+        for (int element : elements) {
+            if (element != EMPTY && filter.test(element)) {
+                if (count == accepted.length) {
+                    accepted = Arrays.copyOf(accepted, count * 2);
+                }
+                accepted[count++] = element;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            remove(accepted[i]);
+        }
+        return count > 0;
+    }
+
+    /**
+     * The slots, then the empty element as one last bucket.
+     */
+    @Override
+    public Spliterator<Integer> spliterator() {
+        int[] table = elements;
+        boolean withEmpty = containsEmpty;
+        return new TableSpliterator<Integer>(table.length + 1, size,
+            Spliterator.SIZED | Spliterator.DISTINCT | Spliterator.NONNULL,
+            (i, action) -> {
+                if (i == table.length) {
+                    if (withEmpty) {
+                        action.accept(EMPTY);
+                    }
+                } else if (table[(int) i] != EMPTY) {
+                    action.accept(table[(int) i]);
+                }
+            });
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        if (containsEmpty) {
+            sb.append(EMPTY).append(", ");
+        }
+        for (int element : elements) {
+            if (element != EMPTY) {
+                sb.append(element).append(", ");
+            }
+        }
+        if (sb.length() > 1) {
+            sb.setLength(sb.length() - 2);
+        }
+        return sb.append("]").toString();
+    }
+
+    /**
+     * Empties the slot by moving back into it the next element of the probe sequence that is allowed to be there,
+     * ie: whose home slot is not between the freed slot and its current slot, and so on.
+     */
+    private void shiftBack(int free) {
+        int index = free;
+        while (true) {
+            index = (index + 1) & mask;
+            int element = elements[index];
+            if (element == EMPTY) {
+                break;
+            }
+            int home = hash(element) & mask;
+            if (((index - home) & mask) >= ((index - free) & mask)) {
+                elements[free] = element;
+                free = index;
+            }
+        }
+        elements[free] = EMPTY;
+    }
+
+    private void resize() {
+        if (elements.length == MAX_CAPACITY) {
+            throw new IllegalStateException("can not grow past 2^30 slots, size: " + size);
+        }
+        int[] oldElements = elements;
+        elements = new int[oldElements.length * 2];
+        mask = elements.length - 1;
+        for (int element : oldElements) {
+            if (element == EMPTY) {
+                continue;
+            }
+            int index = hash(element) & mask;
+            while (elements[index] != EMPTY) {
+                index = (index + 1) & mask;
+            }
+            elements[index] = element;
+        }
+    }
+
+    /**
+     * murmur3 finalizer, spreads sequential ids over the whole table.
+     */
+    private static int hash(final int element) {
+        int h = element;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
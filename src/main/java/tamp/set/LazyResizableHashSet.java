@@ -2,213 +2,414 @@ package tamp.set;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Spliterator;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import tamp.counter.StripedCounter;
+import tamp.metrics.Metrics;
 
 /**
- * On resize start using 2 tables an old one and a new one.
- * all add operations happen on the new one
- * contains and remove happen on both.
- * In the back a thread will move element bucket by bucket from the old table to the new table.
- * The idea here is not to have some kind of stop the world when resizing.
- * The problem that remains is that you still the locks are not expendable.
+ * On resize start using 2 tables an old one and a new one, the new one having its own locks,
+ * so the number of locks grows with the table.
+ * The old table is moved to the new one bucket by bucket, a moved bucket is replaced by a MOVED marker
+ * and any operation that finds the marker carries on in the new table.
+ * The move is split in chunks of buckets, claimed by decrementing a shared index (as ConcurrentHashMap's transfer):
+ *  - the thread that starts the resize moves chunks until none is left,
+ *  - any other thread that adds during the resize moves one chunk before its add,
+ * so the resize goes as fast as the number of writing threads allows, and an add never waits for the whole of it.
+ * The last chunk moved makes the new table the current one.
+ * As in SimpleConcurrentHashSet, contains reads optimistically and only takes the read lock if a writer got in.
+ * With Metrics, reports the time waited on each bucket lock (the stripe is the bucket index in its table),
+ * the length of the buckets scanned by add and remove, and for each resize the time the thread that started it
+ * spent moving chunks until none was left.
  */
 public class LazyResizableHashSet<T> implements SimpleSet<T> {
 
-    private final Lock[] locks;
-    private volatile List<T>[] elements;
-    private volatile List<T>[] newElements;
-    private AtomicBoolean resizing;
-    private AtomicInteger size; // current number of elements
-    private final ExecutorService service;
+    private static final int MIN_CHUNK = 16;
+    private static final int NUMBER_OF_CPUS = Runtime.getRuntime().availableProcessors();
+    @SuppressWarnings("rawtypes")
+    private static final List MOVED = new ArrayList(0);
+
+    private volatile Table<T> table;
+    private final StripedCounter size; // current number of elements
+    private final boolean optimisticReads;
+    private final Metrics metrics;
 
     public LazyResizableHashSet(final int capacity) {
-        this.size = new AtomicInteger();
-        this.resizing = new AtomicBoolean(false);
-        this.elements = new ArrayList[capacity];
-        this.locks = new Lock[capacity];
-        this.service = Executors.newFixedThreadPool(5);
-        for (int i = 0; i < capacity; i++) {
-            elements[i] = new ArrayList<T>();
-            locks[i] = new ReentrantLock();
-        }
+        this(capacity, true, Metrics.NONE);
+    }
+
+    public LazyResizableHashSet(final int capacity, final Metrics metrics) {
+        this(capacity, true, metrics);
     }
 
     /**
-     * On a resize we need to check both, the old table and the new table
-     * So we need to lock both the old table and the new table.
+     * @param optimisticReads false to always take the read lock in contains, only there to measure against
+     */
+    public LazyResizableHashSet(final int capacity, final boolean optimisticReads) {
+        this(capacity, optimisticReads, Metrics.NONE);
+    }
+
+    public LazyResizableHashSet(final int capacity, final boolean optimisticReads, final Metrics metrics) {
+        this.optimisticReads = optimisticReads;
+        this.metrics = metrics;
+        this.size = new StripedCounter();
+        this.table = new Table<>(capacity);
+    }
+
+    /**
+     * The bucket of the element in the current table, then if it was moved the bucket in the new table.
+     * An optimistic read that fails, or throws, is only trusted if the stamp is still valid.
      */
     @Override
     public boolean contains(final T element) {
-        int hash = Math.abs(element.hashCode() % elements.length);
-        int newHash = Math.abs(element.hashCode() % (elements.length * 2));
-
-        boolean lockBothTable = acquire(element);
-        try {
-            if (!resizing.get())
-                return elements[hash].contains(element);
-            return elements[hash].contains(element)
-                || newElements[newHash].contains(element);
-        } finally {
-            release(element, lockBothTable);
+        Table<T> current = table;
+        while (true) {
+            int index = current.index(element);
+            StampedLock lock = current.locks[index];
+            long stamp = optimisticReads ? lock.tryOptimisticRead() : 0;
+            if (stamp != 0) {
+                try {
+                    List<T> bucket = current.buckets[index];
+                    boolean found = bucket != MOVED && bucket.contains(element);
+                    if (lock.validate(stamp)) {
+                        if (bucket != MOVED) {
+                            return found;
+                        }
+                        current = current.next.get();
+                        continue;
+                    }
+                } catch (RuntimeException e) {
+                    if (lock.validate(stamp)) {
+                        throw e;
+                    }
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                List<T> bucket = current.buckets[index];
+                if (bucket != MOVED) {
+                    return bucket.contains(element);
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            current = current.next.get();
         }
     }
 
     /**
-     * On a resize only need to add the element in the new table
-     * so on a resize we only need to lock the new table.
+     * During a resize first helps with one chunk, then adds to the old table if the bucket is not moved yet,
+     * it will be moved with the rest of the bucket, else to the new table.
      */
     @Override
     public void add(final T element) {
-        if (contains(element)) {
-            return;
+        Table<T> current = table;
+        if (current.next.get() != null) {
+            transfer(current, false);
+        }
+        while (true) {
+            int index = current.index(element);
+            long stamp = writeLock(current, index);
+            try {
+                List<T> bucket = current.buckets[index];
+                if (bucket != MOVED) {
+                    metrics.probe(bucket.size());
+                    if (bucket.contains(element)) {
+                        return;
+                    }
+                    bucket.add(element);
+                    break;
+                }
+            } finally {
+                current.locks[index].unlockWrite(stamp);
+            }
+            current = current.next.get();
         }
 
-        int hash = Math.abs(element.hashCode() % elements.length);
-        int newHash = Math.abs(element.hashCode() % (elements.length * 2));
+        int threshold = current.capacity / 2;
+        if (size.addAndSample(1, size.samplingShift(threshold)) && size.estimate() >= threshold) {
+            resize(current, current.capacity * 2);
+        }
+    }
 
-        boolean lockBothTable = acquire(element);
-        try {
-            if (!resizing.get()) {
-                elements[hash].add(element);
-            } else {
-                newElements[newHash].add(element);
+    /**
+     * Grows the table once for the whole batch, then sorts the batch by bucket and takes each lock once
+     * for all the elements of its bucket.
+     * A bucket moved in the meantime by another resize falls back to one add per element.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void addAll(final Collection<? extends T> batch) {
+        Table<T> current = table;
+        if (current.next.get() != null) {
+            transfer(current, false);
+        }
+        long needed = size.estimate() + batch.size();
+        if (needed >= current.capacity / 2) {
+            int newCapacity = current.capacity * 2;
+            while (needed >= newCapacity / 2) {
+                newCapacity *= 2;
             }
-        } finally {
-            release(element, lockBothTable);
+            resize(current, newCapacity);
+        }
+
+        current = table;
+        Object[] elementsToAdd = batch.toArray();
+        long[] byBucket = new long[elementsToAdd.length];
+        for (int i = 0; i < elementsToAdd.length; i++) {
+            byBucket[i] = (long) current.index((T) elementsToAdd[i]) << 32 | i;
+        }
+        Arrays.sort(byBucket);
+
+        int added = 0;
+        int start = 0;
+        while (start < byBucket.length) {
+            int index = (int) (byBucket[start] >>> 32);
+            int end = start;
+            while (end < byBucket.length && (int) (byBucket[end] >>> 32) == index) {
+                end++;
+            }
+            boolean moved;
+            long stamp = writeLock(current, index);
+            try {
+                List<T> bucket = current.buckets[index];
+                moved = bucket == MOVED;
+                for (int i = start; i < end && !moved; i++) {
+                    T element = (T) elementsToAdd[(int) byBucket[i]];
+                    if (!bucket.contains(element)) {
+                        bucket.add(element);
+                        added++;
+                    }
+                }
+            } finally {
+                current.locks[index].unlockWrite(stamp);
+            }
+            for (int i = start; i < end && moved; i++) {
+                add((T) elementsToAdd[(int) byBucket[i]]);
+            }
+            start = end;
         }
 
-        if (size.addAndGet(1) >= elements.length / 2) {
-            resize(elements.length);
+        current = table;
+        size.add(added);
+        if (size.estimate() >= current.capacity / 2) {
+            resize(current, current.capacity * 2);
         }
     }
 
     public int capacity() {
-        return elements.length;
+        return table.capacity;
     }
 
     public int size() {
-        return size.get();
+        return (int) size.sum();
     }
 
-    /**
-     * On a resize needs to potentially remove from both tables
-     * the old one and the new one
-     */
     @Override
     public boolean remove(final T element) {
-        int hash = Math.abs(element.hashCode() % elements.length);
-        boolean lockBothTable = acquire(element);
-        try {
-            boolean isRemoved = false;
-            if (lockBothTable) {
-                isRemoved = newElements[hash].remove(element);
+        Table<T> current = table;
+        while (true) {
+            int index = current.index(element);
+            long stamp = writeLock(current, index);
+            try {
+                List<T> bucket = current.buckets[index];
+                if (bucket != MOVED) {
+                    metrics.probe(bucket.size());
+                    boolean isRemoved = bucket.remove(element);
+                    if (isRemoved)
+                        size.decrement();
+                    return isRemoved;
+                }
+            } finally {
+                current.locks[index].unlockWrite(stamp);
             }
-             isRemoved |= elements[hash].remove(element);
-            if (isRemoved)
-                size.getAndDecrement();
-            return isRemoved;
-        } finally {
-            release(element, lockBothTable);
+            current = current.next.get();
         }
     }
 
+    /**
+     * Each bucket lock is taken once. A moved bucket is filtered in the buckets of the new table it went to,
+     * which only hold what the move put there once the old bucket is MOVED.
+     */
+    @Override
+    public boolean removeIf(final Predicate<? super T> filter) {
+        Table<T> start = table;
+        int removed = 0;
+        for (int i = 0; i < start.capacity; i++) {
+            removed += removeIf(start, i, filter);
+        }
+        size.add(-removed);
+        return removed > 0;
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        Table<T> start = table;
+        return new TableSpliterator<T>(start.capacity, size.estimate(),
+            Spliterator.CONCURRENT | Spliterator.DISTINCT | Spliterator.NONNULL,
+            (i, action) -> read(start, (int) i, action));
+    }
+
     @Override
     public String toString() {
-        return Arrays.toString(elements);
+        return Arrays.toString(table.buckets);
     }
 
     /**
-     * move all elements from old table to new table asynchronously.
+     * Copies the bucket under its read lock and hands the copy,
+     * or if it was moved reads the buckets of the new table it went to.
      */
-    private void resize(final int currentCapacity) {
-        if (resizing.get()) // someone is already resizing
+    @SuppressWarnings("unchecked")
+    private void read(final Table<T> current, final int index, final Consumer<? super T> action) {
+        Object[] copy = null;
+        long stamp = current.locks[index].readLock();
+        try {
+            List<T> bucket = current.buckets[index];
+            if (bucket != MOVED) {
+                copy = bucket.toArray();
+            }
+        } finally {
+            current.locks[index].unlockRead(stamp);
+        }
+        if (copy == null) {
+            Table<T> next = current.next.get();
+            for (int i = index; i < next.capacity; i += current.capacity) {
+                read(next, i, action);
+            }
             return;
-        service.submit(resizer(currentCapacity));
+        }
+        for (Object element : copy) {
+            action.accept((T) element);
+        }
     }
 
-    @Override
-    protected void finalize() {
-        service.shutdown();
+    /**
+     * Same walk as read, under the write lock of each bucket.
+     * @return the number of elements removed
+     */
+    private int removeIf(final Table<T> current, final int index, final Predicate<? super T> filter) {
+        long stamp = writeLock(current, index);
+        try {
+            List<T> bucket = current.buckets[index];
+            if (bucket != MOVED) {
+                int before = bucket.size();
+                bucket.removeIf(filter);
+                return before - bucket.size();
+            }
+        } finally {
+            current.locks[index].unlockWrite(stamp);
+        }
+        Table<T> next = current.next.get();
+        int removed = 0;
+        for (int i = index; i < next.capacity; i += current.capacity) {
+            removed += removeIf(next, i, filter);
+        }
+        return removed;
     }
 
-    private Runnable resizer(final int currentCapacity) {
-        return new Runnable() {
-            @Override
-            public void run() {
+    /**
+     * A table is only resized once it is the current one: a new table that is still being filled
+     * will be resized by the next add that crosses the threshold after the move is done.
+     * @param newCapacity a power of 2 multiple of the current capacity, unless another thread already started
+     */
+    private void resize(final Table<T> current, final int newCapacity) {
+        if (table != current) {
+            return;
+        }
+        if (current.next.get() == null && current.next.compareAndSet(null, new Table<T>(newCapacity))
+            && metrics.enabled()) {
+            long start = System.nanoTime();
+            transfer(current, true);
+            metrics.resize(System.nanoTime() - start);
+            return;
+        }
+        transfer(current, true);
+    }
 
-                //someone is already resizing or a resize was initiated but another finished in the meantime
-                if (resizing.get()
-                    || currentCapacity != elements.length) {
-                    return;
-                }
+    /**
+     * The clock is only read when metrics are on and the lock is taken.
+     */
+    private long writeLock(final Table<T> current, final int index) {
+        StampedLock lock = current.locks[index];
+        if (!metrics.enabled()) {
+            return lock.writeLock();
+        }
+        long stamp = lock.tryWriteLock();
+        if (stamp == 0) {
+            long start = System.nanoTime();
+            stamp = lock.writeLock();
+            metrics.lockWait(index, System.nanoTime() - start);
+        }
+        return stamp;
+    }
 
-                //create the new elements table
-                int newCapacity = elements.length * 2;
-                newElements = new ArrayList[elements.length * 2];
-                for (int i = 0; i < newCapacity; i++)
-                    newElements[i] = new ArrayList<T>();
-
-                if (!resizing.compareAndSet(false, true))
-                    return;
-
-                // add elements from old table to new table
-                for (int i = 0; i < elements.length; i++) {
-                    List<T> bucket = elements[i];
-                    for (T element: bucket) {
-                        int hash = Math.abs(element.hashCode()) % newElements.length;
-                        acquire(element);
-                        try {
-                            newElements[hash].add(element);
-                        } finally {
-                            release(element, true);
-                        }
+    /**
+     * Claims chunks of buckets from the end of the old table, once or until there are none left,
+     * and moves them to the new table.
+     * Bucket i of the old table can only go to buckets i, i + capacity, i + 2 * capacity... of the new one,
+     * and nobody looks at those before seeing i moved, so only the lock of the old bucket is needed.
+     */
+    private void transfer(final Table<T> old, final boolean untilDone) {
+        Table<T> next = old.next.get();
+        do {
+            int end = old.transferIndex.getAndAdd(-old.chunk);
+            if (end <= 0) {
+                return; // every chunk is claimed
+            }
+            int start = Math.max(end - old.chunk, 0);
+            for (int i = start; i < end; i++) {
+                long stamp = writeLock(old, i);
+                try {
+                    for (T element : old.buckets[i]) {
+                        next.buckets[next.index(element)].add(element);
                     }
+                    old.buckets[i] = MOVED;
+                } finally {
+                    old.locks[i].unlockWrite(stamp);
                 }
-
-                //replace old table by new table
-                //replace old size by new size
-                elements = newElements;
-                resizing.set(false);
-                return;
             }
-        };
+            if (old.moved.addAndGet(end - start) == old.capacity) {
+                table = next;
+            }
+        } while (untilDone);
     }
 
     /**
-     * if no resize on going then only need a lock one lock because the element can only be in one place.
-     * Else, need both need a lock on the old table and the new table.
-     * @param element
+     * One lock per bucket.
      */
-    private boolean acquire(final T element) {
-        int hash = Math.abs(element.hashCode() % elements.length);
-        int newHash = Math.abs(element.hashCode() % (elements.length * 2));
-        boolean lockBothTable = false;
-        if (resizing.get()) {
-            locks[newHash % locks.length].lock();
-            lockBothTable = true;
-        }
-        locks[hash % locks.length].lock();
-        return lockBothTable;
-    }
+    private static final class Table<T> {
+        private final List<T>[] buckets;
+        private final StampedLock[] locks;
+        private final int capacity;
+        private final int chunk;
+        private final AtomicReference<Table<T>> next;
+        private final AtomicInteger transferIndex; // buckets from transferIndex on are claimed
+        private final AtomicInteger moved;
 
-    /**
-     * if no resize on going then only need a lock one lock because the element can only be in one place.
-     * Else, need both need a lock on the old table and the new table.
-     * @param element
-     */
-    private void release(final T element, final boolean unlockBothTable) {
-        int hash = Math.abs(element.hashCode() % elements.length);
-        int newHash = Math.abs(element.hashCode() % (elements.length * 2));
+        @SuppressWarnings("unchecked")
+        Table(final int capacity) {
+            this.capacity = capacity;
+            this.buckets = new ArrayList[capacity];
+            this.locks = new StampedLock[capacity];
+            for (int i = 0; i < capacity; i++) {
+                buckets[i] = new ArrayList<T>();
+                locks[i] = new StampedLock();
+            }
+            this.chunk = Math.max(capacity / (4 * NUMBER_OF_CPUS), MIN_CHUNK);
+            this.next = new AtomicReference<>();
+            this.transferIndex = new AtomicInteger(capacity);
+            this.moved = new AtomicInteger();
+        }
 
-        if (unlockBothTable) {
-            locks[newHash % locks.length].unlock();
+        int index(final T element) {
+            return Math.abs(element.hashCode() % capacity);
         }
-        locks[hash % locks.length].unlock();
     }
 }
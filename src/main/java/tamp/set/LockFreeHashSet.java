@@ -0,0 +1,295 @@
+package tamp.set;
+
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+
+/**
+ * Split-ordered hashset from Shalev and Shavit (TAMP chapter 13.3).
+ * All the elements live in a single lock free linked list, sorted by the bit reversal of their hash.
+ * A bucket is only a shortcut into that list: a sentinel node placed where the elements of the bucket start.
+ * With that order, doubling the number of buckets never moves an element, the new bucket just splits an old one,
+ * so a resize is a single CAS on the bucket count and the new buckets get their sentinel lazily,
+ * by whichever thread first needs them.
+ * Nothing ever blocks: add / remove are CAS based (logical deletion with a mark, then physical unlinking),
+ * contains never writes.
+ */
+public class LockFreeHashSet<T> implements SimpleSet<T> {
+
+    private static final int THRESHOLD = 2; // average number of elements per bucket before doubling them
+    private static final int SEGMENT_SHIFT = 12;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int MAX_BUCKETS = 1 << 24;
+    private static final int HI_BIT = 0x80000000;
+
+    // the bucket directory is split in lazily allocated segments so that it can grow without being copied
+    private final AtomicReferenceArray<AtomicReferenceArray<Node<T>>> segments;
+    private final AtomicInteger bucketSize;
+    private final AtomicInteger size;
+
+    public LockFreeHashSet(final int capacity) {
+        int initialBuckets = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1);
+        segments = new AtomicReferenceArray<>(MAX_BUCKETS / SEGMENT_SIZE);
+        bucketSize = new AtomicInteger(Math.min(initialBuckets, MAX_BUCKETS));
+        size = new AtomicInteger();
+        setBucket(0, new Node<T>(sentinelKey(0), null, null));
+    }
+
+    @Override
+    public void add(final T element) {
+        int hash = hash(element);
+        Node<T> bucket = getBucket(hash & (bucketSize.get() - 1));
+        if (insert(bucket, ordinaryKey(hash), element) == null) {
+            return; //already exists
+        }
+        int currentSize = size.incrementAndGet();
+        int currentBucketSize = bucketSize.get();
+        if (currentSize / currentBucketSize > THRESHOLD && currentBucketSize < MAX_BUCKETS) {
+            bucketSize.compareAndSet(currentBucketSize, currentBucketSize * 2);
+        }
+    }
+
+    @Override
+    public boolean remove(final T element) {
+        int hash = hash(element);
+        Node<T> bucket = getBucket(hash & (bucketSize.get() - 1));
+        long key = ordinaryKey(hash);
+        while (true) {
+            Window<T> window = find(bucket, key, element);
+            Node<T> curr = window.curr;
+            if (curr == null || curr.key != key) {
+                return false;
+            }
+            Node<T> succ = curr.next.getReference();
+            if (!curr.next.compareAndSet(succ, succ, false, true)) {
+                continue; // either its successor changed or someone else marked it
+            }
+            window.pred.next.compareAndSet(curr, succ, false, false);
+            size.decrementAndGet();
+            return true;
+        }
+    }
+
+    @Override
+    public boolean contains(final T element) {
+        int hash = hash(element);
+        Node<T> curr = getBucket(hash & (bucketSize.get() - 1));
+        long key = ordinaryKey(hash);
+        boolean[] marked = {false};
+        while (curr != null && curr.key <= key) {
+            Node<T> succ = curr.next.get(marked);
+            if (curr.key == key && !marked[0] && element.equals(curr.value)) {
+                return true;
+            }
+            curr = succ;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public int capacity() {
+        return bucketSize.get();
+    }
+
+    /**
+     * Walks the list and removes the accepted elements one by one,
+     * elements added during the walk may or may not be seen.
+     */
+    @Override
+    public boolean removeIf(final Predicate<? super T> filter) {
+        boolean isRemoved = false;
+        boolean[] marked = {false};
+        Node<T> curr = getBucket(0).next.getReference();
+        while (curr != null) {
+            Node<T> succ = curr.next.get(marked);
+            if (curr.value != null && !marked[0] && filter.test(curr.value)) {
+                isRemoved |= remove(curr.value);
+            }
+            curr = succ;
+        }
+        return isRemoved;
+    }
+
+    /**
+     * With 2^k buckets, position p of the split ordered list holds the keys in [p << (32 - k), (p + 1) << (32 - k)),
+     * which are the elements of the bucket whose index is p reversed over k bits.
+     * So a range of positions is a range of the list, and each position is read from the sentinel of its bucket.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        int buckets = bucketSize.get();
+        int bits = Integer.numberOfTrailingZeros(buckets);
+        return new TableSpliterator<T>(buckets, size.get(),
+            Spliterator.CONCURRENT | Spliterator.DISTINCT | Spliterator.NONNULL,
+            (position, action) -> {
+                long end = (position + 1) << (32 - bits);
+                int bucket = bits == 0 ? 0 : Integer.reverse((int) position) >>> (32 - bits);
+                boolean[] marked = {false};
+                Node<T> curr = getBucket(bucket).next.getReference();
+                while (curr != null && curr.key < end) {
+                    Node<T> succ = curr.next.get(marked);
+                    if (curr.value != null && !marked[0]) {
+                        action.accept(curr.value);
+                    }
+                    curr = succ;
+                }
+            });
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        boolean[] marked = {false};
+        Node<T> curr = getBucket(0).next.getReference();
+        while (curr != null) {
+            Node<T> succ = curr.next.get(marked);
+            if (curr.value != null && !marked[0]) {
+                sb.append(curr.value).append(", ");
+            }
+            curr = succ;
+        }
+        if (sb.length() > 1) {
+            sb.setLength(sb.length() - 2);
+        }
+        return sb.append("]").toString();
+    }
+
+    private Node<T> getBucket(final int index) {
+        AtomicReferenceArray<Node<T>> segment = segments.get(index >>> SEGMENT_SHIFT);
+        Node<T> bucket = segment == null ? null : segment.get(index & (SEGMENT_SIZE - 1));
+        if (bucket == null) {
+            bucket = initializeBucket(index);
+        }
+        return bucket;
+    }
+
+    /**
+     * The parent of a bucket is the bucket it was split from: the same index without its highest bit.
+     * Its sentinel is inserted starting from the parent sentinel (recursively initialized if needed).
+     */
+    private Node<T> initializeBucket(final int index) {
+        Node<T> parent = getBucket(index & ~Integer.highestOneBit(index));
+        long key = sentinelKey(index);
+        Node<T> sentinel = insert(parent, key, null);
+        if (sentinel == null) {
+            sentinel = find(parent, key, null).curr; // someone else inserted it first
+        }
+        setBucket(index, sentinel);
+        return sentinel;
+    }
+
+    private void setBucket(final int index, final Node<T> sentinel) {
+        int segmentIndex = index >>> SEGMENT_SHIFT;
+        AtomicReferenceArray<Node<T>> segment = segments.get(segmentIndex);
+        if (segment == null) {
+            segments.compareAndSet(segmentIndex, null, new AtomicReferenceArray<Node<T>>(SEGMENT_SIZE));
+            segment = segments.get(segmentIndex);
+        }
+        segment.compareAndSet(index & (SEGMENT_SIZE - 1), null, sentinel);
+    }
+
+    /**
+     * @return the inserted node, null if an equal one was already there
+     */
+    private Node<T> insert(final Node<T> head, final long key, final T value) {
+        while (true) {
+            Window<T> window = find(head, key, value);
+            Node<T> curr = window.curr;
+            if (curr != null && curr.key == key) {
+                return null;
+            }
+            Node<T> node = new Node<>(key, value, curr);
+            if (window.pred.next.compareAndSet(curr, node, false, false)) {
+                return node;
+            }
+        }
+    }
+
+    /**
+     * Walks from head up to the node matching the key and the value (or the first node with a bigger key),
+     * unlinking on the way any marked node.
+     * Several elements can share the same key, they are then next to each other in no particular order.
+     */
+    private Window<T> find(final Node<T> head, final long key, final T value) {
+        boolean[] marked = {false};
+        retry:
+        while (true) {
+            Node<T> pred = head;
+            Node<T> curr = pred.next.getReference();
+            while (true) {
+                if (curr == null) {
+                    return new Window<>(pred, null);
+                }
+                Node<T> succ = curr.next.get(marked);
+                while (marked[0]) {
+                    if (!pred.next.compareAndSet(curr, succ, false, false)) {
+                        continue retry;
+                    }
+                    curr = succ;
+                    if (curr == null) {
+                        return new Window<>(pred, null);
+                    }
+                    succ = curr.next.get(marked);
+                }
+                if (curr.key > key || (curr.key == key && (value == null || value.equals(curr.value)))) {
+                    return new Window<>(pred, curr);
+                }
+                pred = curr;
+                curr = succ;
+            }
+        }
+    }
+
+    /**
+     * Ordinary keys have their lowest bit set so they always come after the sentinel of their bucket,
+     * whose keys have it cleared.
+     */
+    private static long ordinaryKey(final int hash) {
+        return Integer.reverse(hash | HI_BIT) & 0xFFFFFFFFL;
+    }
+
+    private static long sentinelKey(final int bucket) {
+        return Integer.reverse(bucket) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * murmur3 finalizer so that the low bits used to pick the bucket depend on the whole hashCode,
+     * minus the sign bit kept for the ordinary / sentinel distinction.
+     */
+    private static int hash(final Object element) {
+        int h = element.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h & ~HI_BIT;
+    }
+
+    static final class Node<T> {
+        final long key;
+        final T value;
+        final AtomicMarkableReference<Node<T>> next;
+
+        Node(final long key, final T value, final Node<T> next) {
+            this.key = key;
+            this.value = value;
+            this.next = new AtomicMarkableReference<>(next, false);
+        }
+    }
+
+    static final class Window<T> {
+        final Node<T> pred;
+        final Node<T> curr;
+
+        Window(final Node<T> pred, final Node<T> curr) {
+            this.pred = pred;
+            this.curr = curr;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package tamp.set;
+
+import java.util.Collection;
+
+/**
+ * Add, remove and membership only, without any way to enumerate the elements,
+ * which a filter that keeps fingerprints instead of its elements, as CuckooFilter, can not do.
+ */
+public interface MembershipSet<T> {
+
+    public void add(T element);
+
+    public boolean remove(T element);
+
+    public boolean contains(T element);
+
+    /**
+     * One add per element, the striped sets take each lock once for the whole batch instead.
+     */
+    public default void addAll(Collection<? extends T> elements) {
+        for (T element : elements) {
+            add(element);
+        }
+    }
+
+    public default boolean containsAll(Collection<? extends T> elements) {
+        for (T element : elements) {
+            if (!contains(element)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
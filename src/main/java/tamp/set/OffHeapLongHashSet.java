@@ -0,0 +1,403 @@
+package tamp.set;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Predicate;
+
+/**
+ * Same open addressing table as LongHashSet, linear probing and backward shift removes,
+ * but the slots live outside of the heap so the GC never scans nor copies them.
+ *  - Either in direct ByteBuffers, or in a file mapped in memory: the table then survives a restart,
+ *  opening the same file maps it again and the set is ready without reading nor rehashing anything.
+ *  - A single ByteBuffer is limited to 2GB, the table is split in chunks of at most 1GB
+ *  (2^27 slots), so it can be as large as the memory or the disk allows.
+ *  - As LazyResizableHashSet, the table doubles once half full. A file backed table is streamed into a new file
+ *  next to the current one, which only replaces it once complete, so a crash during a resize loses nothing.
+ * Writes to a mapped file reach the page cache right away, close forces them to the disk.
+ * Not thread safe.
+ */
+public class OffHeapLongHashSet implements SimpleSet<Long>, Closeable {
+
+    private static final long EMPTY = 0L;
+    private static final long MAGIC = 0x74616d704c6f6e67L;
+    private static final int MAX_CHUNK_SHIFT = 27;
+    // header: magic, capacity, size, containsEmpty
+    private static final int HEADER_BYTES = 64;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int SIZE_OFFSET = 16;
+    private static final int CONTAINS_EMPTY_OFFSET = 24;
+
+    private final Path file; // null when in direct buffers
+    private FileChannel channel;
+    private ByteBuffer header;
+    private Table table;
+    private long size;
+    private boolean containsEmpty;
+
+    /**
+     * Table in direct buffers, lost when the set is.
+     */
+    public OffHeapLongHashSet(final long capacity) {
+        this.file = null;
+        this.header = ByteBuffer.allocateDirect(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            this.table = new Table(null, tableSize(capacity));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // only a mapped file can throw
+        }
+        writeHeader();
+    }
+
+    /**
+     * Table in the given file: opens the set saved in it if the file exists, else creates it.
+     * @param capacity only used when the file is created
+     */
+    public OffHeapLongHashSet(final Path file, final long capacity) {
+        this.file = file;
+        try {
+            Files.deleteIfExists(resizeFile(file)); // left by a crash during a resize
+            boolean exists = Files.exists(file) && Files.size(file) > 0;
+            if (exists) {
+                checkMagic(file);
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (exists) {
+                size = header.getLong(SIZE_OFFSET);
+                containsEmpty = header.get(CONTAINS_EMPTY_OFFSET) != 0;
+                table = new Table(channel, header.getLong(CAPACITY_OFFSET));
+            } else {
+                table = new Table(channel, tableSize(capacity));
+                writeHeader();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the header without mapping it: mapping a shorter file read write would grow it.
+     */
+    private static void checkMagic(final Path file) throws IOException {
+        try (FileChannel reading = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            if (reading.size() < HEADER_BYTES || reading.read(magic, 0) != 8 || magic.getLong(0) != MAGIC) {
+                throw new IllegalArgumentException(file + " is not an OffHeapLongHashSet file");
+            }
+        }
+    }
+
+    public void add(final long element) {
+        if (element == EMPTY) {
+            if (!containsEmpty) {
+                containsEmpty = true;
+                size++;
+                writeHeader();
+            }
+            return;
+        }
+        long index = hash(element) & table.mask;
+        long current;
+        while ((current = table.get(index)) != EMPTY) {
+            if (current == element) {
+                return;
+            }
+            index = (index + 1) & table.mask;
+        }
+        table.set(index, element);
+        size++;
+        writeHeader();
+
+        if (size > table.capacity / 2) {
+            resize();
+        }
+    }
+
+    public boolean remove(final long element) {
+        if (element == EMPTY) {
+            boolean isRemoved = containsEmpty;
+            if (isRemoved) {
+                containsEmpty = false;
+                size--;
+                writeHeader();
+            }
+            return isRemoved;
+        }
+        long index = hash(element) & table.mask;
+        long current;
+        while ((current = table.get(index)) != element) {
+            if (current == EMPTY) {
+                return false;
+            }
+            index = (index + 1) & table.mask;
+        }
+        shiftBack(index);
+        size--;
+        writeHeader();
+        return true;
+    }
+
+    public boolean contains(final long element) {
+        if (element == EMPTY) {
+            return containsEmpty;
+        }
+        long index = hash(element) & table.mask;
+        long current;
+        while ((current = table.get(index)) != EMPTY) {
+            if (current == element) {
+                return true;
+            }
+            index = (index + 1) & table.mask;
+        }
+        return false;
+    }
+
+    @Override
+    public void add(final Long element) {
+        add(element.longValue());
+    }
+
+    @Override
+    public boolean remove(final Long element) {
+        return remove(element.longValue());
+    }
+
+    @Override
+    public boolean contains(final Long element) {
+        return contains(element.longValue());
+    }
+
+    /**
+     * A remove shifts elements back, so the accepted ones are collected first and removed afterwards.
+     */
+    @Override
+    public boolean removeIf(final Predicate<? super Long> filter) {
+        long[] accepted = new long[16];
+        int count = 0;
+        if (containsEmpty && filter.test(EMPTY)) {
+            accepted[count++] = EMPTY;
+        }
+        for (long i = 0; i < table.capacity; i++) {
+            long element = table.get(i);
+            if (element != EMPTY && filter.test(element)) {
+                if (count == accepted.length) {
+                    accepted = Arrays.copyOf(accepted, count * 2);
+                }
+                accepted[count++] = element;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            remove(accepted[i]);
+        }
+        return count > 0;
+    }
+
+    /**
+     * The slots, then the empty element as one last bucket.
+     */
+    @Override
+    public Spliterator<Long> spliterator() {
+        Table slots = table;
+        boolean withEmpty = containsEmpty;
+        return new TableSpliterator<Long>(slots.capacity + 1, size,
+            Spliterator.SIZED | Spliterator.DISTINCT | Spliterator.NONNULL,
+            (i, action) -> {
+                if (i == slots.capacity) {
+                    if (withEmpty) {
+                        action.accept(EMPTY);
+                    }
+                } else {
+                    long element = slots.get(i);
+                    if (element != EMPTY) {
+                        action.accept(element);
+                    }
+                }
+            });
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long capacity() {
+        return table.capacity;
+    }
+
+    /**
+     * Forces the table to the disk and releases the file, the set can not be used anymore.
+     * Nothing to do for direct buffers.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        table.force();
+        ((MappedByteBuffer) header).force();
+        channel.close();
+        channel = null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        if (containsEmpty) {
+            sb.append(EMPTY).append(", ");
+        }
+        for (long i = 0; i < table.capacity; i++) {
+            long element = table.get(i);
+            if (element != EMPTY) {
+                sb.append(element).append(", ");
+            }
+        }
+        if (sb.length() > 1) {
+            sb.setLength(sb.length() - 2);
+        }
+        return sb.append("]").toString();
+    }
+
+    /**
+     * See LongHashSet.shiftBack.
+     */
+    private void shiftBack(long free) {
+        long index = free;
+        while (true) {
+            index = (index + 1) & table.mask;
+            long element = table.get(index);
+            if (element == EMPTY) {
+                break;
+            }
+            long home = hash(element) & table.mask;
+            if (((index - home) & table.mask) >= ((index - free) & table.mask)) {
+                table.set(free, element);
+                free = index;
+            }
+        }
+        table.set(free, EMPTY);
+    }
+
+    /**
+     * Reads the old table in order and writes every element in a table twice as large,
+     * in a new file that atomically replaces the old one once complete.
+     */
+    private void resize() {
+        try {
+            FileChannel newChannel = null;
+            ByteBuffer newHeader;
+            if (file == null) {
+                newHeader = header;
+            } else {
+                newChannel = FileChannel.open(resizeFile(file), StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+                newHeader = newChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            }
+            Table newTable = new Table(newChannel, table.capacity * 2);
+            for (long i = 0; i < table.capacity; i++) {
+                long element = table.get(i);
+                if (element == EMPTY) {
+                    continue;
+                }
+                long index = hash(element) & newTable.mask;
+                while (newTable.get(index) != EMPTY) {
+                    index = (index + 1) & newTable.mask;
+                }
+                newTable.set(index, element);
+            }
+            table = newTable;
+            header = newHeader;
+            writeHeader();
+            if (file != null) {
+                table.force();
+                ((MappedByteBuffer) header).force();
+                Files.move(resizeFile(file), file, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+                channel.close();
+                channel = newChannel;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeHeader() {
+        header.putLong(0, MAGIC);
+        header.putLong(CAPACITY_OFFSET, table.capacity);
+        header.putLong(SIZE_OFFSET, size);
+        header.put(CONTAINS_EMPTY_OFFSET, (byte) (containsEmpty ? 1 : 0));
+    }
+
+    private static Path resizeFile(final Path file) {
+        return file.resolveSibling(file.getFileName() + ".resize");
+    }
+
+    private static long tableSize(final long capacity) {
+        return Long.highestOneBit(Math.max(capacity, 2) * 2 - 1); // next power of 2
+    }
+
+    /**
+     * murmur3 64 bits finalizer.
+     */
+    private static long hash(final long element) {
+        long h = element;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Slots of 8 bytes split in chunks of a power of 2 slots, mapped from the file right after the header
+     * or allocated directly when there is no file.
+     */
+    private static final class Table {
+        private final ByteBuffer[] chunks;
+        private final int chunkShift;
+        private final long chunkMask;
+        private final long capacity;
+        private final long mask;
+
+        Table(final FileChannel channel, final long capacity) throws IOException {
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            this.chunkShift = Math.min(Long.numberOfTrailingZeros(capacity), MAX_CHUNK_SHIFT);
+            this.chunkMask = (1L << chunkShift) - 1;
+            this.chunks = new ByteBuffer[(int) (capacity >>> chunkShift)];
+            int chunkBytes = (1 << chunkShift) * Long.BYTES;
+            for (int i = 0; i < chunks.length; i++) {
+                ByteBuffer chunk = channel == null
+                    ? ByteBuffer.allocateDirect(chunkBytes)
+                    : channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + (long) i * chunkBytes, chunkBytes);
+                chunks[i] = chunk.order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        long get(final long index) {
+            return chunks[(int) (index >>> chunkShift)].getLong((int) (index & chunkMask) << 3);
+        }
+
+        void set(final long index, final long element) {
+            chunks[(int) (index >>> chunkShift)].putLong((int) (index & chunkMask) << 3, element);
+        }
+
+        void force() {
+            for (ByteBuffer chunk : chunks) {
+                ((MappedByteBuffer) chunk).force();
+            }
+        }
+    }
+}
@@ -2,10 +2,14 @@ package tamp.set;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Spliterator;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+
+import tamp.counter.StripedCounter;
+import tamp.metrics.Metrics;
 
 /**
  * Simple example of a concurrent hashset where you would have one lock
@@ -13,94 +17,285 @@ import java.util.concurrent.locks.ReentrantLock;
  * In case of resizing
  *  1. the locks are not growing
  *  2. the whole set is locked
+ * contains does not take the lock: it reads the bucket, then checks with the StampedLock that no writer
+ * locked it in the meantime, and only takes the (shared) read lock if one did.
+ * So readers never write to the lock and never wait for each other.
+ * With Metrics, reports the time waited on each stripe, the length of the bucket scanned by add and remove,
+ * and how long each resize takes.
  */
 public class SimpleConcurrentHashSet<T> implements SimpleSet<T> {
 
-    AtomicInteger size;
+    StripedCounter size;
     int capacity;
-    final Lock[] locks;
+    final StampedLock[] locks;
+    final boolean optimisticReads;
+    final Metrics metrics;
     List<T>[] elements;
 
-    @SuppressWarnings("unchecked")
     public SimpleConcurrentHashSet(int capacity) {
+        this(capacity, true, Metrics.NONE);
+    }
+
+    public SimpleConcurrentHashSet(int capacity, Metrics metrics) {
+        this(capacity, true, metrics);
+    }
+
+    /**
+     * @param optimisticReads false to always take the read lock in contains, only there to measure against
+     */
+    public SimpleConcurrentHashSet(int capacity, boolean optimisticReads) {
+        this(capacity, optimisticReads, Metrics.NONE);
+    }
+
+    @SuppressWarnings("unchecked")
+    public SimpleConcurrentHashSet(int capacity, boolean optimisticReads, Metrics metrics) {
         this.capacity = capacity;
-        this.size = new AtomicInteger();
+        this.optimisticReads = optimisticReads;
+        this.metrics = metrics;
+        this.size = new StripedCounter();
         this.elements = new ArrayList[capacity];
-        this.locks = new Lock[capacity];
+        this.locks = new StampedLock[capacity];
 
         for (int i = 0; i < capacity; i++) {
             elements[i] = new ArrayList<T>();
-            locks[i] = new ReentrantLock();
+            locks[i] = new StampedLock();
         }
     }
 
+    /**
+     * The stripe of an element does not depend on the capacity (which is a multiple of the number of locks)
+     * so the bucket is looked up once the lock is held, a resize can't happen in between.
+     * An optimistic read racing a writer may see the list or the table half updated and fail in any way,
+     * its result is only used, or its exception thrown, if the stamp is still valid.
+     */
     @Override
     public boolean contains(T element) {
-        int hash = Math.abs(element.hashCode() % capacity);
+        StampedLock lock = lockFor(element);
+        long stamp = optimisticReads ? lock.tryOptimisticRead() : 0;
+        if (stamp != 0) {
+            try {
+                boolean found = elements[Math.abs(element.hashCode() % capacity)].contains(element);
+                if (lock.validate(stamp)) {
+                    return found;
+                }
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        stamp = lock.readLock();
         try {
-            locks[hash % locks.length].lock();
-            return elements[hash].contains(element);
+            return elements[Math.abs(element.hashCode() % capacity)].contains(element);
         } finally {
-            locks[hash % locks.length].unlock();
+            lock.unlockRead(stamp);
         }
     }
 
     @Override
     public void add(T element) {
-        int hash = Math.abs(element.hashCode() % capacity);
+        int stripe = stripe(element);
+        StampedLock lock = locks[stripe];
+        long stamp = writeLock(lock, stripe);
+        try {
+            List<T> bucket = elements[Math.abs(element.hashCode() % capacity)];
+            metrics.probe(bucket.size());
+            if (bucket.contains(element)) {
+                return;
+            }
+            bucket.add(element);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        int currentCapacity = capacity;
+        int threshold = currentCapacity / 2;
+        if (size.addAndSample(1, size.samplingShift(threshold)) && size.estimate() > threshold) {
+            resize(currentCapacity * 2);
+        }
+    }
 
-        if (elements[hash].contains(element)) {
-            return;
+    /**
+     * Grows the table once for the whole batch, then sorts the batch by stripe
+     * and takes each lock once for all the elements of its stripe.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void addAll(Collection<? extends T> batch) {
+        int currentCapacity = capacity;
+        long needed = size.estimate() + batch.size();
+        if (needed > currentCapacity / 2) {
+            resize((int) (2 * needed + 1));
+        }
+        Object[] elementsToAdd = batch.toArray();
+        long[] byStripe = new long[elementsToAdd.length];
+        for (int i = 0; i < elementsToAdd.length; i++) {
+            byStripe[i] = (long) Math.abs(elementsToAdd[i].hashCode() % locks.length) << 32 | i;
         }
+        Arrays.sort(byStripe);
 
-        locks[hash % locks.length].lock();
-        try {
-            elements[hash].add(element);
-        } finally {
-            locks[hash % locks.length].unlock();
+        int added = 0;
+        int start = 0;
+        while (start < byStripe.length) {
+            int stripe = (int) (byStripe[start] >>> 32);
+            int end = start;
+            StampedLock lock = locks[stripe];
+            long stamp = writeLock(lock, stripe);
+            try {
+                for (; end < byStripe.length && (int) (byStripe[end] >>> 32) == stripe; end++) {
+                    T element = (T) elementsToAdd[(int) byStripe[end]];
+                    List<T> bucket = elements[Math.abs(element.hashCode() % capacity)];
+                    if (!bucket.contains(element)) {
+                        bucket.add(element);
+                        added++;
+                    }
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            start = end;
         }
-        if (size.getAndIncrement() > capacity / 2) {
-            resize();
+        currentCapacity = capacity;
+        size.add(added);
+        if (size.estimate() > currentCapacity / 2) {
+            resize(currentCapacity * 2);
         }
     }
 
     @Override
     public boolean remove(T element) {
-        int hash = Math.abs(element.hashCode() % capacity);
-        locks[hash % locks.length].lock();
+        int stripe = stripe(element);
+        StampedLock lock = locks[stripe];
+        long stamp = writeLock(lock, stripe);
         try {
-            boolean isRemoved = elements[hash].remove(element);
+            List<T> bucket = elements[Math.abs(element.hashCode() % capacity)];
+            metrics.probe(bucket.size());
+            boolean isRemoved = bucket.remove(element);
             if (isRemoved)
-                size.getAndDecrement();
+                size.decrement();
             return isRemoved;
         } finally {
-            locks[hash % locks.length].unlock();
+            lock.unlockWrite(stamp);
         }
     }
 
+    /**
+     * Each lock is taken once, for all the buckets of its stripe.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        int removed = 0;
+        for (int stripe = 0; stripe < locks.length; stripe++) {
+            long stamp = writeLock(locks[stripe], stripe);
+            try {
+                for (int i = stripe; i < capacity; i += locks.length) {
+                    List<T> bucket = elements[i];
+                    int before = bucket.size();
+                    bucket.removeIf(filter);
+                    removed += before - bucket.size();
+                }
+            } finally {
+                locks[stripe].unlockWrite(stamp);
+            }
+        }
+        size.add(-removed);
+        return removed > 0;
+    }
+
+    /**
+     * Each bucket is copied under the read lock of its stripe.
+     * The buckets are the ones of the table when the spliterator was created, a resize during the traversal
+     * leaves them as they were so it only hides what is added after it.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Spliterator<T> spliterator() {
+        List<T>[] table;
+        long stamp = locks[0].readLock(); // no resize in progress
+        try {
+            table = elements;
+        } finally {
+            locks[0].unlockRead(stamp);
+        }
+        return new TableSpliterator<T>(table.length, size.estimate(),
+            Spliterator.CONCURRENT | Spliterator.DISTINCT | Spliterator.NONNULL,
+            (i, action) -> {
+                StampedLock lock = locks[(int) (i % locks.length)];
+                Object[] bucket;
+                long readStamp = lock.readLock();
+                try {
+                    bucket = table[(int) i].toArray();
+                } finally {
+                    lock.unlockRead(readStamp);
+                }
+                for (Object element : bucket) {
+                    action.accept((T) element);
+                }
+            });
+    }
+
     @Override
     public String toString() {
         return Arrays.toString(elements);
     }
 
-    private void resize() {
+    private StampedLock lockFor(T element) {
+        return locks[stripe(element)];
+    }
+
+    private int stripe(T element) {
+        return Math.abs(element.hashCode() % locks.length);
+    }
+
+    /**
+     * The clock is only read when metrics are on and the lock is taken.
+     */
+    private long writeLock(StampedLock lock, int stripe) {
+        if (!metrics.enabled()) {
+            return lock.writeLock();
+        }
+        long stamp = lock.tryWriteLock();
+        if (stamp == 0) {
+            long start = System.nanoTime();
+            stamp = lock.writeLock();
+            metrics.lockWait(stripe, System.nanoTime() - start);
+        }
+        return stamp;
+    }
+
+    /**
+     * Doubles the capacity until it reaches minCapacity, nothing to do if someone else did it in the meantime.
+     */
+    private void resize(int minCapacity) {
+        long start = metrics.enabled() ? System.nanoTime() : 0;
+        long[] stamps = new long[locks.length];
         for (int i = 0; i < locks.length; i++) {
-            locks[i].lock();
+            stamps[i] = writeLock(locks[i], i);
         }
         try {
+            if (capacity >= minCapacity) {
+                return; // someone else resized in the meantime
+            }
             int newCapacity = capacity * 2;
-            List<T>[] newElements = new ArrayList[capacity * 2];
-            for (int i = 0; i < capacity; i++) {
-                newElements[i] = elements[i];
+            while (newCapacity < minCapacity) {
+                newCapacity *= 2;
             }
-            for (int i = capacity; i < newCapacity; i++) {
+            List<T>[] newElements = new ArrayList[newCapacity];
+            for (int i = 0; i < newCapacity; i++) {
                 newElements[i] = new ArrayList<T>();
             }
+            for (List<T> bucket : elements) {
+                for (T element : bucket) {
+                    newElements[Math.abs(element.hashCode() % newCapacity)].add(element);
+                }
+            }
             elements = newElements;
             capacity = newCapacity;
+            if (metrics.enabled()) {
+                metrics.resize(System.nanoTime() - start);
+            }
         } finally {
             for (int i = 0; i < locks.length; i++) {
-                locks[i].lock();
+                locks[i].unlockWrite(stamps[i]);
             }
         }
     }
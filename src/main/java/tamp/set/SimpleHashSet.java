@@ -3,6 +3,8 @@ package tamp.set;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Predicate;
 
 /**
  * Most Simple example of a closed addressing HashSet.
@@ -55,6 +57,31 @@ public class SimpleHashSet<T> implements SimpleSet<T> {
 
     }
 
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        boolean isRemoved = false;
+        for (List<T> bucket : elements) {
+            if (bucket == null)
+                continue;
+            int before = bucket.size();
+            if (bucket.removeIf(filter)) {
+                size -= before - bucket.size();
+                isRemoved = true;
+            }
+        }
+        return isRemoved;
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        List<T>[] table = elements;
+        return new TableSpliterator<>(table.length, size, Spliterator.SIZED | Spliterator.DISTINCT | Spliterator.NONNULL,
+            (i, action) -> {
+                if (table[(int) i] != null)
+                    table[(int) i].forEach(action);
+            });
+    }
+
     @Override
     public String toString() {
         return Arrays.toString(elements);
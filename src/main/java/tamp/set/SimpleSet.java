@@ -1,10 +1,40 @@
 package tamp.set;
 
-public interface SimpleSet<T> {
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-    public void add(T element);
+/**
+ * A set that keeps its elements, so they can be enumerated.
+ */
+public interface SimpleSet<T> extends MembershipSet<T>, Iterable<T> {
 
-    public boolean remove(T element);
+    /**
+     * Removes every element the filter accepts.
+     * @return true if any element was removed
+     */
+    public boolean removeIf(Predicate<? super T> filter);
 
-    public boolean contains(T element);
+    /**
+     * Read only, on top of the spliterator.
+     */
+    @Override
+    public default Iterator<T> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    /**
+     * Splits on ranges of buckets. SIZED for the sets that are not thread safe,
+     * weakly consistent for the concurrent ones: every element present for the whole traversal is seen once,
+     * elements added or removed during it may or may not be.
+     */
+    @Override
+    public Spliterator<T> spliterator();
+
+    public default Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
 }
@@ -0,0 +1,90 @@
+package tamp.set;
+
+import java.util.ArrayDeque;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the range [index, fence) of the buckets (or slots) of a table, split in two halves of the range,
+ * so that a parallel stream hands each task its own range of buckets.
+ * The set reads a bucket through a BucketReader, the readers of the concurrent sets copy the bucket under its lock
+ * and hand the copy, which makes the traversal weakly consistent.
+ * Only the spliterator the set returns may be SIZED, the estimate of a split is half of the range it came from.
+ */
+final class TableSpliterator<T> implements Spliterator<T> {
+
+    interface BucketReader<T> {
+
+        /**
+         * Hands every element of the bucket at index to the action.
+         */
+        void read(long index, Consumer<? super T> action);
+    }
+
+    private final BucketReader<T> reader;
+    private final ArrayDeque<T> pending; // rest of the bucket tryAdvance is in
+    private final long fence;
+    private long index;
+    private long estimatedSize;
+    private int characteristics;
+
+    TableSpliterator(final long fence, final long size, final int characteristics, final BucketReader<T> reader) {
+        this(0, fence, size, characteristics, reader);
+    }
+
+    private TableSpliterator(final long origin, final long fence, final long estimatedSize,
+                             final int characteristics, final BucketReader<T> reader) {
+        this.index = origin;
+        this.fence = fence;
+        this.estimatedSize = estimatedSize;
+        this.characteristics = characteristics;
+        this.reader = reader;
+        this.pending = new ArrayDeque<>();
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super T> action) {
+        while (pending.isEmpty() && index < fence) {
+            reader.read(index++, pending::add);
+        }
+        T element = pending.poll();
+        if (element == null) {
+            return false;
+        }
+        action.accept(element);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(final Consumer<? super T> action) {
+        while (!pending.isEmpty()) {
+            action.accept(pending.poll());
+        }
+        while (index < fence) {
+            reader.read(index++, action);
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        long mid = (index + fence) >>> 1;
+        if (mid <= index) {
+            return null;
+        }
+        characteristics &= ~SIZED;
+        estimatedSize >>>= 1;
+        Spliterator<T> prefix = new TableSpliterator<>(index, mid, estimatedSize, characteristics, reader);
+        index = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return estimatedSize;
+    }
+
+    @Override
+    public int characteristics() {
+        return characteristics;
+    }
+}
@@ -0,0 +1,45 @@
+package tamp.skiplist;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A node gets promoted to the next level with probability p = 1/2^k.
+ * Instead of flipping a coin per level, takes a single ThreadLocalRandom draw (no shared seed to contend on)
+ * and counts its trailing zero bits, k zero bits per level.
+ * A lower p means shorter towers, so less memory, in exchange of longer searches: log(n) / log(1/p) levels
+ * of about 1/p hops each.
+ */
+public class GeometricLevelGenerator implements LevelGenerator {
+
+    public static final GeometricLevelGenerator HALF = new GeometricLevelGenerator(0.5);
+    public static final GeometricLevelGenerator QUARTER = new GeometricLevelGenerator(0.25);
+
+    private final int bitsPerLevel;
+
+    /**
+     * @param promotionProbability one of 1/2, 1/4, 1/8 ...
+     */
+    public GeometricLevelGenerator(final double promotionProbability) {
+        int bits = (int) Math.round(-Math.log(promotionProbability) / Math.log(2));
+        if (bits < 1 || bits > 63 || Math.scalb(1.0, -bits) != promotionProbability) {
+            throw new IllegalArgumentException(
+                "promotionProbability must be a power of 1/2, got " + promotionProbability);
+        }
+        this.bitsPerLevel = bits;
+    }
+
+    @Override
+    public int nextLevel(final int maxLevel) {
+        int level = Long.numberOfTrailingZeros(ThreadLocalRandom.current().nextLong()) / bitsPerLevel;
+        return Math.min(level, maxLevel);
+    }
+
+    /**
+     * log(n) / log(1/p), rounded up.
+     */
+    @Override
+    public int levelsFor(final long numberOfElements) {
+        int log2 = 64 - Long.numberOfLeadingZeros(Math.max(numberOfElements - 1, 1));
+        return (log2 + bitsPerLevel - 1) / bitsPerLevel;
+    }
+}
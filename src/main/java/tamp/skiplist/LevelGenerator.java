@@ -0,0 +1,17 @@
+package tamp.skiplist;
+
+/**
+ * Draws the height of the tower of a new skip list node.
+ */
+public interface LevelGenerator {
+
+    /**
+     * @return a level in [0, maxLevel], 0 meaning that the node only lives on the bottom level.
+     */
+    public int nextLevel(int maxLevel);
+
+    /**
+     * @return the number of levels that keeps searches in O(log n) for the given number of elements.
+     */
+    public int levelsFor(long numberOfElements);
+}
@@ -0,0 +1,325 @@
+package tamp.skiplist;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+
+/**
+ * Lock free skip list from TAMP (chapter 14.4).
+ * Each successor reference carries a mark, a marked reference means that the node owning it is logically deleted.
+ * add and remove do the physical (un)linking with CAS, level by level, the list at level 0 is the source of truth.
+ * contains is wait free: it never CAS, it simply jumps over the marked nodes.
+ */
+public class LockFreeSkipList<E extends Comparable<E>> implements SkipList<E> {
+
+    private final int numberOfLevel;
+    private final LevelGenerator levelGenerator;
+    private final Node<E> head;
+    private final Node<E> tail;
+
+    public LockFreeSkipList(final int numberOfLevel) {
+        this(numberOfLevel, GeometricLevelGenerator.HALF);
+    }
+
+    public LockFreeSkipList(final int numberOfLevel,
+        final LevelGenerator levelGenerator) {
+        this.numberOfLevel = numberOfLevel;
+        this.levelGenerator = levelGenerator;
+        head = new Node<>(null, numberOfLevel - 1);
+        tail = new Node<>(null, numberOfLevel - 1);
+        for (int i = 0; i < numberOfLevel; i++) {
+            head.next[i] = new AtomicMarkableReference<>(tail, false);
+            tail.next[i] = new AtomicMarkableReference<>(null, false);
+        }
+    }
+
+    @Override
+    public void add(final E element) {
+        int topLevel = levelGenerator.nextLevel(numberOfLevel - 1);
+        Node<E>[] preds = newLevels();
+        Node<E>[] succs = newLevels();
+        while (true) {
+            if (find(element, preds, succs)) {
+                return; //already exists
+            }
+            Node<E> node = new Node<>(element, topLevel);
+            for (int i = 0; i <= topLevel; i++) {
+                node.next[i] = new AtomicMarkableReference<>(succs[i], false);
+            }
+            // the node is in the set as soon as it is linked at the bottom level
+            if (!preds[0].next[0].compareAndSet(succs[0], node, false, false)) {
+                continue;
+            }
+            for (int i = 1; i <= topLevel; i++) {
+                while (true) {
+                    if (preds[i].next[i].compareAndSet(succs[i], node, false, false)) {
+                        break;
+                    }
+                    find(element, preds, succs);
+                    // the node got removed in the meantime, no need to link the upper levels
+                    if (succs[0] != node) {
+                        return;
+                    }
+                    Node<E> succ = node.next[i].getReference();
+                    if (succ != succs[i] && !node.next[i].compareAndSet(succ, succs[i], false, false)) {
+                        return; // marked
+                    }
+                }
+            }
+            return;
+        }
+    }
+
+    @Override
+    public void remove(final E element) {
+        Node<E>[] preds = newLevels();
+        Node<E>[] succs = newLevels();
+        if (!find(element, preds, succs)) {
+            return;
+        }
+        delete(succs[0], preds, succs);
+    }
+
+    @Override
+    public boolean contains(final E element) {
+        boolean[] marked = {false};
+        Node<E> pred = head;
+        Node<E> curr = null;
+        Node<E> succ;
+        for (int i = numberOfLevel - 1; i >= 0; i--) {
+            curr = pred.next[i].getReference();
+            while (true) {
+                succ = curr.next[i].get(marked);
+                while (marked[0]) {
+                    curr = succ;
+                    succ = curr.next[i].get(marked);
+                }
+                if (isBefore(curr, element)) {
+                    pred = curr;
+                    curr = succ;
+                } else {
+                    break;
+                }
+            }
+        }
+        return curr != tail && curr.value.compareTo(element) == 0;
+    }
+
+    /**
+     * The floor / ceiling / iteration operations are weakly consistent:
+     * they may or may not reflect the concurrent adds and removes.
+     */
+    @Override
+    public E floor(final E element) {
+        return search(element, true).value; // null for the head
+    }
+
+    @Override
+    public E ceiling(final E element) {
+        return nextUnmarked(search(element, false)).value; // null for the tail
+    }
+
+    @Override
+    public E first() {
+        return firstNode().value;
+    }
+
+    @Override
+    public E pollFirst() {
+        Node<E>[] preds = newLevels();
+        Node<E>[] succs = newLevels();
+        while (true) {
+            Node<E> node = firstNode();
+            if (node == tail) {
+                return null;
+            }
+            if (delete(node, preds, succs)) {
+                return node.value;
+            }
+            // someone else removed it first, try the next one
+        }
+    }
+
+    @Override
+    public Iterator<E> subSet(final E from, final E to) {
+        return new RangeIterator(nextUnmarked(search(from, false)), to);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        boolean[] marked = {false};
+        Node<E> node = head.next[0].getReference();
+        while (node != tail) {
+            Node<E> succ = node.next[0].get(marked);
+            if (!marked[0]) {
+                sb.append(node.value + ", ");
+            }
+            node = succ;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Marks the victim level by level, top down, then physically unlinks it.
+     * @return true if this thread is the one that removed it, ie: the one marking the bottom level.
+     */
+    private boolean delete(final Node<E> victim,
+        final Node<E>[] preds,
+        final Node<E>[] succs) {
+        boolean[] marked = {false};
+        // the upper levels are only shortcuts
+        for (int i = victim.topLevel; i >= 1; i--) {
+            Node<E> succ = victim.next[i].get(marked);
+            while (!marked[0]) {
+                victim.next[i].compareAndSet(succ, succ, false, true);
+                succ = victim.next[i].get(marked);
+            }
+        }
+        Node<E> succ = victim.next[0].get(marked);
+        while (true) {
+            boolean iMarkedIt = victim.next[0].compareAndSet(succ, succ, false, true);
+            succ = victim.next[0].get(marked);
+            if (iMarkedIt) {
+                find(victim.value, preds, succs); // physically unlink
+                return true;
+            } else if (marked[0]) {
+                return false; // someone else removed it
+            }
+        }
+    }
+
+    /**
+     * Same traversal as contains.
+     * @param inclusive also moves over a node equal to the element
+     * @return the last node lower than (or equal to, if inclusive) the element at the bottom level, possibly the head
+     */
+    private Node<E> search(final E element, final boolean inclusive) {
+        boolean[] marked = {false};
+        Node<E> pred = head;
+        Node<E> curr = null;
+        Node<E> succ;
+        for (int i = numberOfLevel - 1; i >= 0; i--) {
+            curr = pred.next[i].getReference();
+            while (true) {
+                succ = curr.next[i].get(marked);
+                while (marked[0]) {
+                    curr = succ;
+                    succ = curr.next[i].get(marked);
+                }
+                if (isBefore(curr, element) || inclusive && curr != tail && curr.value.compareTo(element) == 0) {
+                    pred = curr;
+                    curr = succ;
+                } else {
+                    break;
+                }
+            }
+        }
+        return pred;
+    }
+
+    private Node<E> firstNode() {
+        return nextUnmarked(head);
+    }
+
+    private Node<E> nextUnmarked(final Node<E> node) {
+        boolean[] marked = {false};
+        Node<E> curr = node.next[0].getReference();
+        Node<E> succ = curr.next[0].get(marked);
+        while (marked[0]) {
+            curr = succ;
+            succ = curr.next[0].get(marked);
+        }
+        return curr;
+    }
+
+    /**
+     * Fills preds and succs with the nodes surrounding the element at every level,
+     * unlinking on the way any marked node.
+     * @return true if the element is in the list
+     */
+    private boolean find(final E element,
+        final Node<E>[] preds,
+        final Node<E>[] succs) {
+        boolean[] marked = {false};
+        retry:
+        while (true) {
+            Node<E> pred = head;
+            for (int i = numberOfLevel - 1; i >= 0; i--) {
+                Node<E> curr = pred.next[i].getReference();
+                while (true) {
+                    Node<E> succ = curr.next[i].get(marked);
+                    while (marked[0]) {
+                        if (!pred.next[i].compareAndSet(curr, succ, false, false)) {
+                            continue retry;
+                        }
+                        curr = pred.next[i].getReference();
+                        succ = curr.next[i].get(marked);
+                    }
+                    if (isBefore(curr, element)) {
+                        pred = curr;
+                        curr = succ;
+                    } else {
+                        break;
+                    }
+                }
+                preds[i] = pred;
+                succs[i] = curr;
+            }
+            return succs[0] != tail && succs[0].value.compareTo(element) == 0;
+        }
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private Node<E>[] newLevels() {
+        return new Node[numberOfLevel];
+    }
+
+    private boolean isBefore(final Node<E> node, final E element) {
+        return node != tail && node.value.compareTo(element) < 0;
+    }
+
+    private class RangeIterator implements Iterator<E> {
+
+        private final E to;
+        private Node<E> next;
+
+        RangeIterator(final Node<E> start, final E to) {
+            this.to = to;
+            this.next = start;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != tail && next.value.compareTo(to) < 0;
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            E value = next.value;
+            next = nextUnmarked(next);
+            return value;
+        }
+    }
+
+    static final class Node<E> {
+        final E value;
+        final int topLevel;
+        final AtomicMarkableReference<Node<E>>[] next;
+
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        Node(final E value, final int topLevel) {
+            this.value = value;
+            this.topLevel = topLevel;
+            this.next = new AtomicMarkableReference[topLevel + 1];
+        }
+
+        @Override
+        public String toString() {
+            return value == null ? "null" : value.toString();
+        }
+    }
+}
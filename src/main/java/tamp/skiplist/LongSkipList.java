@@ -0,0 +1,259 @@
+package tamp.skiplist;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Single threaded skip list of primitive longs.
+ * There is no node object: a node is an int index into parallel arrays (an arena),
+ *  keys[node] is its key, heights[node] its number of levels,
+ *  and its tower of successors is stored in next[towers[node]] ... next[towers[node] + heights[node] - 1].
+ * So no boxing, no object header per node and a traversal only touches primitive arrays.
+ * Removed nodes are recycled through one free list per height, so their tower has the right size.
+ */
+public class LongSkipList {
+
+    private static final int NIL = -1; // plays the role of the tail
+
+    private final int numberOfLevel;
+    private final LevelGenerator levelGenerator;
+    private final int head;
+    private final int[] freeNodes; // freeNodes[h - 1] is the first free node of height h
+    private final int[] preds; // reused across calls, the list is single threaded
+    private long[] keys;
+    private byte[] heights;
+    private int[] towers;
+    private int[] next;
+    private int numberOfNodes;
+    private int nextTower;
+    private int numberOfElements;
+
+    public LongSkipList(final int numberOfLevel) {
+        this(numberOfLevel, 16);
+    }
+
+    public LongSkipList(final int numberOfLevel, final int initialCapacity) {
+        this(numberOfLevel, initialCapacity, GeometricLevelGenerator.HALF);
+    }
+
+    public LongSkipList(final int numberOfLevel,
+        final int initialCapacity,
+        final LevelGenerator levelGenerator) {
+        this.numberOfLevel = numberOfLevel;
+        this.levelGenerator = levelGenerator;
+        int capacity = Math.max(initialCapacity, 1) + 1;
+        keys = new long[capacity];
+        heights = new byte[capacity];
+        towers = new int[capacity];
+        next = new int[capacity * 2 + numberOfLevel]; // towers are at most 2 levels high on average
+        freeNodes = new int[numberOfLevel];
+        Arrays.fill(freeNodes, NIL);
+        preds = new int[numberOfLevel];
+
+        head = allocate(numberOfLevel);
+        for (int i = 0; i < numberOfLevel; i++) {
+            next[towers[head] + i] = NIL;
+        }
+    }
+
+    public void add(final long key) {
+        int node = head;
+        for (int i = numberOfLevel - 1; i >= 0; i--) {
+            int succ = next[towers[node] + i];
+            while (succ != NIL && keys[succ] < key) {
+                node = succ;
+                succ = next[towers[node] + i];
+            }
+            if (succ != NIL && keys[succ] == key) {
+                return; //already exists
+            }
+            preds[i] = node;
+        }
+
+        int height = levelGenerator.nextLevel(numberOfLevel - 1) + 1;
+        int newNode = allocate(height);
+        keys[newNode] = key;
+        int tower = towers[newNode];
+        for (int i = 0; i < height; i++) {
+            int predLink = towers[preds[i]] + i;
+            next[tower + i] = next[predLink];
+            next[predLink] = newNode;
+        }
+        numberOfElements++;
+    }
+
+    public void remove(final long key) {
+        int pred = findPredecessor(key, preds);
+        int victim = next[towers[pred]];
+        if (victim == NIL || keys[victim] != key) {
+            return;
+        }
+        unlink(victim);
+    }
+
+    public boolean contains(final long key) {
+        int node = head;
+        for (int i = numberOfLevel - 1; i >= 0; i--) {
+            int succ = next[towers[node] + i];
+            while (succ != NIL && keys[succ] < key) {
+                node = succ;
+                succ = next[towers[node] + i];
+            }
+            if (succ != NIL && keys[succ] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the greatest key lower than or equal to the given one, noValue if there is none.
+     */
+    public long floor(final long key, final long noValue) {
+        int pred = findPredecessor(key, preds);
+        int node = next[towers[pred]];
+        if (node != NIL && keys[node] == key) {
+            return key;
+        }
+        return pred == head ? noValue : keys[pred];
+    }
+
+    /**
+     * @return the least key greater than or equal to the given one, noValue if there is none.
+     */
+    public long ceiling(final long key, final long noValue) {
+        int node = next[towers[findPredecessor(key, preds)]];
+        return node == NIL ? noValue : keys[node];
+    }
+
+    /**
+     * @throws NoSuchElementException if empty
+     */
+    public long first() {
+        int node = next[towers[head]];
+        if (node == NIL) {
+            throw new NoSuchElementException();
+        }
+        return keys[node];
+    }
+
+    /**
+     * @throws NoSuchElementException if empty
+     */
+    public long pollFirst() {
+        int node = next[towers[head]];
+        if (node == NIL) {
+            throw new NoSuchElementException();
+        }
+        long key = keys[node];
+        for (int i = 0; i < heights[node]; i++) {
+            preds[i] = head;
+        }
+        unlink(node);
+        return key;
+    }
+
+    /**
+     * Lazy iterator, in ascending order, over the keys in [from, to).
+     */
+    public PrimitiveIterator.OfLong subSet(final long from, final long to) {
+        return new RangeIterator(next[towers[findPredecessor(from, preds)]], to);
+    }
+
+    public int size() {
+        return numberOfElements;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        int node = next[towers[head]];
+        while (node != NIL) {
+            sb.append(keys[node] + ", ");
+            node = next[towers[node]];
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Fills preds with the last node lower than the key at every level.
+     * @return the predecessor at the bottom level, possibly the head.
+     */
+    private int findPredecessor(final long key, final int[] preds) {
+        int node = head;
+        for (int i = numberOfLevel - 1; i >= 0; i--) {
+            int succ = next[towers[node] + i];
+            while (succ != NIL && keys[succ] < key) {
+                node = succ;
+                succ = next[towers[node] + i];
+            }
+            preds[i] = node;
+        }
+        return node;
+    }
+
+    /**
+     * preds must hold the predecessors of the victim at each of its levels.
+     */
+    private void unlink(final int victim) {
+        int height = heights[victim];
+        int tower = towers[victim];
+        for (int i = 0; i < height; i++) {
+            next[towers[preds[i]] + i] = next[tower + i];
+        }
+        // first slot of the tower doubles as the free list link
+        next[tower] = freeNodes[height - 1];
+        freeNodes[height - 1] = victim;
+        numberOfElements--;
+    }
+
+    private int allocate(final int height) {
+        int node = freeNodes[height - 1];
+        if (node != NIL) {
+            freeNodes[height - 1] = next[towers[node]];
+            return node;
+        }
+
+        node = numberOfNodes++;
+        if (node == keys.length) {
+            int newCapacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, newCapacity);
+            heights = Arrays.copyOf(heights, newCapacity);
+            towers = Arrays.copyOf(towers, newCapacity);
+        }
+        if (nextTower + height > next.length) {
+            next = Arrays.copyOf(next, Math.max(next.length * 2, nextTower + height));
+        }
+        heights[node] = (byte) height;
+        towers[node] = nextTower;
+        nextTower += height;
+        return node;
+    }
+
+    private class RangeIterator implements PrimitiveIterator.OfLong {
+
+        private final long to;
+        private int node;
+
+        RangeIterator(final int start, final long to) {
+            this.to = to;
+            this.node = start;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return node != NIL && keys[node] < to;
+        }
+
+        @Override
+        public long nextLong() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            long key = keys[node];
+            node = next[towers[node]];
+            return key;
+        }
+    }
+}
@@ -1,43 +1,86 @@
 package tamp.skiplist;
 
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Single threaded skip list.
+ * The number of levels follows the number of elements: each time it crosses a power of 1/p
+ * the head and tail towers get one more level (up to maxLevel), so the lookups stay in O(log n)
+ * whatever the initial guess was.
+ */
 public class SimpleSkipList<E extends Comparable<E>> implements SkipList<E> {
 
-    private final int numberOfLevel;
+    public static final int MAX_LEVEL = 32;
+
+    private final int maxLevel;
+    private final LevelGenerator levelGenerator;
+    private int numberOfLevel;
     private int numberOfElements;
     private final SkipListNode<E> head;
     private final SkipListNode<E> tail;
 
+    public SimpleSkipList() {
+        this(1);
+    }
+
     public SimpleSkipList(final int numberOfLevel) {
+        this(numberOfLevel, GeometricLevelGenerator.HALF);
+    }
+
+    public SimpleSkipList(final int numberOfLevel,
+        final LevelGenerator levelGenerator) {
+        this(numberOfLevel, levelGenerator, MAX_LEVEL);
+    }
+
+    /**
+     * @param numberOfLevel initial number of levels
+     * @param maxLevel the number of levels never grows above it
+     */
+    public SimpleSkipList(final int numberOfLevel,
+        final LevelGenerator levelGenerator,
+        final int maxLevel) {
         this.numberOfLevel = numberOfLevel;
+        this.maxLevel = Math.max(maxLevel, numberOfLevel);
+        this.levelGenerator = levelGenerator;
         numberOfElements = 0;
-        head = new SkipListNode<E>(null, new SkipListNode[numberOfLevel]);
-        tail = new SkipListNode<E>(null, new SkipListNode[numberOfLevel]);
-        for (int i = 0; i < numberOfLevel; i++) {
+        // the sentinels are allocated at their max height once and for all
+        head = new SkipListNode<E>(null, SkipListNode.<E>newLevels(this.maxLevel));
+        tail = new SkipListNode<E>(null, SkipListNode.<E>newLevels(this.maxLevel));
+        for (int i = 0; i < this.maxLevel; i++) {
             head.succs[i] = tail;
         }
     }
 
-    @Override
-    public void add(final E element) {
-        int level = generateNumberOfLevels();
+    /**
+     * Builds the list out of sorted elements in one linear pass: each new node is linked
+     * behind the last node of every level it belongs to, no search and no preds / succs arrays.
+     * Heights are deterministic, the i-th element gets numberOfTrailingZeros(i) + 1 levels
+     * which gives a perfectly balanced list for p = 1/2.
+     * Duplicates are skipped.
+     * @throws IllegalArgumentException if the elements are not in ascending order
+     */
+    public static <E extends Comparable<E>> SimpleSkipList<E> fromSorted(final Iterator<E> sorted) {
+        SimpleSkipList<E> skipList = new SimpleSkipList<>(1, GeometricLevelGenerator.HALF);
+        skipList.appendSorted(sorted, true);
+        return skipList;
+    }
 
-        // case 1
-        if (numberOfElements == 0) {
-            SkipListNode<E>[] succs = new SkipListNode[numberOfLevel];
-            for (int i = 0; i < numberOfLevel; i++) {
-                succs[i] = tail;
-            }
-            SkipListNode<E> node = new SkipListNode<>(element, succs);
-            for (int i = 0; i < level + 1; i++) {
-                head.succs[i] = node;
-            }
-            numberOfElements++;
-            return;
-        }
+    /**
+     * Same as {@link #fromSorted(Iterator)} with the heights drawn out of the level generator.
+     */
+    public static <E extends Comparable<E>> SimpleSkipList<E> fromSorted(final Iterator<E> sorted,
+        final LevelGenerator levelGenerator) {
+        SimpleSkipList<E> skipList = new SimpleSkipList<>(1, levelGenerator);
+        skipList.appendSorted(sorted, false);
+        return skipList;
+    }
 
-        // case 2
-        SkipListNode<E>[] preds = new SkipListNode[numberOfLevel];
-        SkipListNode<E>[] succs = new SkipListNode[numberOfLevel];
+    @Override
+    public void add(final E element) {
+        SkipListNode<E>[] preds = SkipListNode.newLevels(numberOfLevel);
+        SkipListNode<E>[] succs = SkipListNode.newLevels(numberOfLevel);
         SkipListNode<E> currNode = head;
         for (int i = numberOfLevel - 1; i >= 0; i--) {
             while (true) {
@@ -51,17 +94,22 @@ public class SimpleSkipList<E extends Comparable<E>> implements SkipList<E> {
                 currNode = currNode.succs[i];
             }
         }
-        SkipListNode<E> node = new SkipListNode<>(element, succs);
+        int level = levelGenerator.nextLevel(numberOfLevel - 1);
+        SkipListNode<E> node = new SkipListNode<>(element, Arrays.copyOf(succs, level + 1));
         for (int i = 0; i < level + 1; i++) {
             preds[i].succs[i] = node;
         }
         numberOfElements++;
+
+        if (numberOfLevel < maxLevel && levelGenerator.levelsFor(numberOfElements) > numberOfLevel) {
+            numberOfLevel++; // head.succs[numberOfLevel - 1] already points to the tail
+        }
     }
 
     @Override
     public void remove(final E element) {
-        SkipListNode<E>[] preds = new SkipListNode[numberOfLevel];
-        SkipListNode<E>[] succs = new SkipListNode[numberOfLevel];
+        SkipListNode<E>[] preds = SkipListNode.newLevels(numberOfLevel);
+        SkipListNode<E>[] succs = SkipListNode.newLevels(numberOfLevel);
         SkipListNode<E> currNode = head;
         for (int i = numberOfLevel - 1; i >= 0; i--) {
             while (true) {
@@ -71,6 +119,9 @@ public class SimpleSkipList<E extends Comparable<E>> implements SkipList<E> {
                     break;
                 } else if (currNode.succs[i].value.compareTo(element) == 0) {
                     currNode.succs[i] = currNode.succs[i].succs[i];
+                    if (i == 0) {
+                        numberOfElements--;
+                    }
                     break;
                 }
                 currNode = currNode.succs[i];
@@ -94,10 +145,53 @@ public class SimpleSkipList<E extends Comparable<E>> implements SkipList<E> {
         return false;
     }
 
+    @Override
+    public E floor(final E element) {
+        SkipListNode<E> pred = findPredecessor(element);
+        SkipListNode<E> node = pred.succs[0];
+        if (node != tail && node.value.compareTo(element) == 0) {
+            return node.value;
+        }
+        return pred.value; // null for the head
+    }
+
+    @Override
+    public E ceiling(final E element) {
+        return findPredecessor(element).succs[0].value; // null for the tail
+    }
+
+    @Override
+    public E first() {
+        return head.succs[0].value;
+    }
+
+    @Override
+    public E pollFirst() {
+        SkipListNode<E> node = head.succs[0];
+        if (node == tail) {
+            return null;
+        }
+        // the first node is only linked from the head
+        for (int i = 0; i < numberOfLevel && head.succs[i] == node; i++) {
+            head.succs[i] = node.succs[i];
+        }
+        numberOfElements--;
+        return node.value;
+    }
+
+    @Override
+    public Iterator<E> subSet(final E from, final E to) {
+        return new RangeIterator(findPredecessor(from).succs[0], to);
+    }
+
     public int size() {
         return numberOfElements;
     }
 
+    public int levels() {
+        return numberOfLevel;
+    }
+
     @Override
     public String toString() {
         if (numberOfElements == 0)
@@ -111,13 +205,78 @@ public class SimpleSkipList<E extends Comparable<E>> implements SkipList<E> {
         return sb.toString();
     }
 
-    private int generateNumberOfLevels() {
-        int level = 0;
-        while (level < (numberOfLevel - 1)) {
-            if (Math.random() < 0.5) break;
-            level++;
+    private void appendSorted(final Iterator<E> sorted, final boolean deterministic) {
+        SkipListNode<E>[] last = SkipListNode.newLevels(maxLevel);
+        Arrays.fill(last, head);
+        E previous = null;
+        while (sorted.hasNext()) {
+            E element = sorted.next();
+            if (previous != null) {
+                int comparison = previous.compareTo(element);
+                if (comparison > 0) {
+                    throw new IllegalArgumentException("Elements are not sorted: " + previous + " before " + element);
+                } else if (comparison == 0) {
+                    continue;
+                }
+            }
+            previous = element;
+
+            int level = deterministic
+                ? Math.min(Integer.numberOfTrailingZeros(numberOfElements + 1), maxLevel - 1)
+                : levelGenerator.nextLevel(numberOfLevel - 1);
+            SkipListNode<E> node = new SkipListNode<>(element, SkipListNode.<E>newLevels(level + 1));
+            for (int i = 0; i < level + 1; i++) {
+                last[i].succs[i] = node;
+                last[i] = node;
+            }
+            numberOfElements++;
+            numberOfLevel = Math.max(numberOfLevel, level + 1);
+            if (numberOfLevel < maxLevel && levelGenerator.levelsFor(numberOfElements) > numberOfLevel) {
+                numberOfLevel++;
+            }
+        }
+        for (int i = 0; i < maxLevel; i++) {
+            last[i].succs[i] = tail;
+        }
+    }
+
+    /**
+     * @return the last node (possibly the head) strictly lower than the element at the bottom level.
+     */
+    private SkipListNode<E> findPredecessor(final E element) {
+        SkipListNode<E> currNode = head;
+        for (int i = numberOfLevel - 1; i >= 0; i--) {
+            while (currNode.succs[i] != tail && currNode.succs[i].value.compareTo(element) < 0) {
+                currNode = currNode.succs[i];
+            }
+        }
+        return currNode;
+    }
+
+    private class RangeIterator implements Iterator<E> {
+
+        private final E to;
+        private SkipListNode<E> next;
+
+        RangeIterator(final SkipListNode<E> start, final E to) {
+            this.to = to;
+            this.next = start;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != tail && next.value.compareTo(to) < 0;
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            E value = next.value;
+            next = next.succs[0];
+            return value;
         }
-        return level;
     }
 
     static class SkipListNode<E> {
@@ -134,6 +293,11 @@ public class SimpleSkipList<E extends Comparable<E>> implements SkipList<E> {
             this.succs = succs;
         }
 
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        static <E> SkipListNode<E>[] newLevels(final int levels) {
+            return new SkipListNode[levels];
+        }
+
         @Override
         public String toString() {
             return value == null ? "null" : value.toString();
@@ -1,8 +1,44 @@
 package tamp.skiplist;
 
+import java.util.Iterator;
+
 public interface SkipList<E> {
 
     public void add(E element);
     public void remove(E element);
     public boolean contains(E element);
+
+    /**
+     * @return the greatest element lower than or equal to the given one, null if there is none.
+     */
+    public E floor(E element);
+
+    /**
+     * @return the least element greater than or equal to the given one, null if there is none.
+     */
+    public E ceiling(E element);
+
+    /**
+     * @return the lowest element, null if empty.
+     */
+    public E first();
+
+    /**
+     * Removes and returns the lowest element, null if empty.
+     */
+    public E pollFirst();
+
+    /**
+     * Lazy iterator, in ascending order, over the elements in [from, to).
+     * It walks the bottom level in place so a scan costs O(log n + k).
+     */
+    public Iterator<E> subSet(E from, E to);
+
+    /**
+     * Bulk loads already sorted elements in a single linear pass.
+     * @see SimpleSkipList#fromSorted(Iterator)
+     */
+    public static <E extends Comparable<E>> SkipList<E> fromSorted(final Iterator<E> sorted) {
+        return SimpleSkipList.fromSorted(sorted);
+    }
 }
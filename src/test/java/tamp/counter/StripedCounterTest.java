@@ -0,0 +1,94 @@
+package tamp.counter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class StripedCounterTest {
+
+    @Test
+    public void testAddAndSum() {
+        StripedCounter counter = new StripedCounter(4);
+        counter.increment();
+        counter.increment();
+        counter.decrement();
+        counter.add(10);
+        assertEquals(11, counter.sum());
+        assertEquals(11, counter.estimate());
+    }
+
+    @Test
+    public void testNegative() {
+        StripedCounter counter = new StripedCounter(4);
+        counter.add(-5);
+        assertEquals(-5, counter.sum());
+        counter.add(3);
+        assertEquals(-2, counter.sum());
+    }
+
+    @Test
+    public void testSampling() {
+        StripedCounter counter = new StripedCounter(1);
+        assertEquals(0, counter.samplingShift(10));
+        int shift = counter.samplingShift(1 << 20);
+        assertEquals(6, shift);
+        int sampled = 0;
+        for (int i = 0; i < 640; i++) {
+            if (counter.addAndSample(1, shift)) {
+                sampled++;
+            }
+        }
+        assertEquals(10, sampled);
+        assertTrue(counter.addAndSample(1, 0));
+    }
+
+    @Test
+    public void testConcurrentIncrements() throws InterruptedException {
+        final StripedCounter counter = new StripedCounter();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100000; i++) {
+                    counter.increment();
+                    counter.add(2);
+                    counter.decrement();
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(8 * 200000, counter.sum());
+    }
+
+    @Test
+    public void testSumIsASnapshot() throws InterruptedException {
+        // every writer adds then removes one, an exact snapshot never sees more than the number of writers
+        final StripedCounter counter = new StripedCounter();
+        final AtomicBoolean done = new AtomicBoolean();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                while (!done.get()) {
+                    counter.increment();
+                    counter.decrement();
+                }
+            });
+            threads[t].start();
+        }
+        for (int i = 0; i < 1000; i++) {
+            long sum = counter.sum();
+            assertFalse("sum: " + sum, sum < 0 || sum > threads.length);
+        }
+        done.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, counter.sum());
+    }
+}
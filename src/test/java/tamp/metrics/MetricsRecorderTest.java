@@ -0,0 +1,106 @@
+package tamp.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import tamp.set.ConcurrentCuckooHashSet;
+import tamp.set.LazyResizableHashSet;
+import tamp.set.SimpleConcurrentHashSet;
+
+public class MetricsRecorderTest {
+
+    @Test
+    public void testSnapshot() {
+        MetricsRecorder recorder = new MetricsRecorder(4);
+        recorder.lockWait(1, 100);
+        recorder.lockWait(5, 50);
+        recorder.probe(1);
+        recorder.probe(3);
+        recorder.displacement(7);
+        recorder.resize(1000);
+        recorder.casFailure();
+        recorder.hit();
+        recorder.hit();
+        recorder.hit();
+        recorder.miss();
+        recorder.eviction();
+
+        MetricsSnapshot snapshot = recorder.snapshot();
+        assertEquals(2, snapshot.lockWaits);
+        assertEquals(150, snapshot.lockWaitNanos);
+        assertEquals(150, snapshot.lockWaitNanos(1)); // stripe 5 shares the slot of stripe 1
+        assertEquals(0, snapshot.lockWaitNanos(0));
+        assertEquals(2.0, snapshot.averageProbeLength(), 0);
+        assertEquals(3, snapshot.maxProbeLength);
+        assertEquals(7, snapshot.maxDisplacementPathLength);
+        assertEquals(1, snapshot.resizes);
+        assertEquals(1000, snapshot.maxResizeNanos);
+        assertEquals(1, snapshot.casFailures);
+        assertEquals(0.75, snapshot.hitRate(), 0);
+        assertEquals(0.25, snapshot.evictionRate(), 0);
+
+        recorder.reset();
+        snapshot = recorder.snapshot();
+        assertEquals(0, snapshot.lockWaits);
+        assertEquals(0, snapshot.maxProbeLength);
+        assertEquals(0, snapshot.hits);
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        MetricsRecorder recorder = new MetricsRecorder().register("MetricsRecorderTest");
+        try {
+            recorder.resize(10);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(1L, server.getAttribute(new ObjectName("tamp:type=MetricsRecorderTest"), "Resizes"));
+        } finally {
+            recorder.unregister("MetricsRecorderTest");
+        }
+    }
+
+    @Test
+    public void testSimpleConcurrentHashSet() {
+        MetricsRecorder recorder = new MetricsRecorder();
+        SimpleConcurrentHashSet<Integer> set = new SimpleConcurrentHashSet<>(16, recorder);
+        for (int i = 0; i < 100; i++) {
+            set.add(i);
+        }
+        set.remove(1);
+        MetricsSnapshot snapshot = recorder.snapshot();
+        assertEquals(101, snapshot.probes);
+        assertTrue(snapshot.resizes > 0);
+        assertEquals(0, snapshot.lockWaits); // one thread never waits
+    }
+
+    @Test
+    public void testLazyResizableHashSet() {
+        MetricsRecorder recorder = new MetricsRecorder();
+        LazyResizableHashSet<Integer> set = new LazyResizableHashSet<>(16, recorder);
+        for (int i = 0; i < 100; i++) {
+            set.add(i);
+        }
+        MetricsSnapshot snapshot = recorder.snapshot();
+        assertEquals(100, snapshot.probes);
+        assertTrue(snapshot.resizes > 0);
+    }
+
+    @Test
+    public void testConcurrentCuckooHashSet() {
+        MetricsRecorder recorder = new MetricsRecorder();
+        ConcurrentCuckooHashSet<Integer> set = new ConcurrentCuckooHashSet<>(16, recorder);
+        for (int i = 0; i < 1000; i++) {
+            set.add(i);
+        }
+        MetricsSnapshot snapshot = recorder.snapshot();
+        assertTrue(snapshot.displacements > 0);
+        assertTrue(snapshot.maxDisplacementPathLength > 0);
+        assertTrue(snapshot.resizes > 0);
+    }
+}
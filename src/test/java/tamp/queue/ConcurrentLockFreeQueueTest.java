@@ -0,0 +1,183 @@
+package tamp.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+public class ConcurrentLockFreeQueueTest {
+
+    @Test
+    public void testGetOnEmpty() {
+        ConcurrentLockFreeQueue<Integer> queue = new ConcurrentLockFreeQueue<>(4);
+        assertNull(queue.get());
+    }
+
+    @Test
+    public void testFifo() {
+        for (boolean recycleNodes : new boolean[] {false, true}) {
+            ConcurrentLockFreeQueue<Integer> queue = new ConcurrentLockFreeQueue<>(4, recycleNodes);
+            for (int round = 0; round < 1000; round++) {
+                queue.add(1);
+                queue.add(2);
+                queue.add(3);
+                assertEquals(new Integer(1), queue.get());
+                assertEquals(new Integer(2), queue.get());
+                assertEquals(new Integer(3), queue.get());
+                assertNull(queue.get());
+            }
+            assertEquals(0, queue.size());
+        }
+    }
+
+    @Test
+    public void testAddWhenFull() {
+        ConcurrentLockFreeQueue<Integer> queue = new ConcurrentLockFreeQueue<>(2);
+        queue.add(1);
+        queue.add(2);
+        try {
+            queue.add(3);
+            fail();
+        } catch (RuntimeException e) {
+            // full
+        }
+        queue.get();
+        queue.add(3);
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void testUnboundedSize() {
+        ConcurrentLockFreeQueue<Integer> queue = new ConcurrentLockFreeQueue<>(Integer.MAX_VALUE);
+        for (int i = 0; i < 100; i++) {
+            queue.add(i);
+        }
+        Integer[] batch = new Integer[100];
+        Arrays.fill(batch, 100);
+        assertEquals(100, queue.offerBatch(batch));
+        assertEquals(200, queue.size());
+        assertEquals(new Integer(0), queue.get());
+        assertEquals(150, queue.drainTo(element -> { }, 150));
+        assertEquals(49, queue.size());
+    }
+
+    @Test(timeout = 60000)
+    public void testCapacityIsExactUnderContention() throws InterruptedException {
+        ConcurrentLockFreeQueue<Integer> queue = new ConcurrentLockFreeQueue<>(1000);
+        AtomicInteger added = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    while (true) {
+                        queue.add(1);
+                        added.incrementAndGet();
+                    }
+                } catch (RuntimeException e) {
+                    // full
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1000, added.get());
+        int count = 0;
+        while (queue.get() != null) {
+            count++;
+        }
+        assertEquals(1000, count);
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentProducersAndConsumers() throws InterruptedException {
+        for (boolean recycleNodes : new boolean[] {false, true}) {
+            int producers = 3;
+            int perProducer = 50000;
+            ConcurrentLockFreeQueue<Integer> queue = new ConcurrentLockFreeQueue<>(64, recycleNodes);
+            AtomicIntegerArray seen = new AtomicIntegerArray(producers * perProducer);
+            AtomicInteger consumed = new AtomicInteger();
+            Thread[] threads = new Thread[producers * 2];
+            for (int p = 0; p < producers; p++) {
+                int first = p * perProducer;
+                threads[p] = new Thread(() -> {
+                    for (int i = first; i < first + perProducer; i++) {
+                        while (true) {
+                            try {
+                                queue.add(i);
+                                break;
+                            } catch (RuntimeException e) {
+                                Thread.yield(); // full
+                            }
+                        }
+                    }
+                });
+            }
+            for (int c = producers; c < threads.length; c++) {
+                threads[c] = new Thread(() -> {
+                    while (consumed.get() < producers * perProducer) {
+                        Integer element = queue.get();
+                        if (element == null) {
+                            Thread.yield();
+                            continue;
+                        }
+                        seen.incrementAndGet(element);
+                        consumed.incrementAndGet();
+                    }
+                });
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            for (int i = 0; i < seen.length(); i++) {
+                assertEquals(1, seen.get(i));
+            }
+            assertEquals(0, queue.size());
+        }
+    }
+
+    @Test
+    public void testBatch() {
+        for (boolean recycleNodes : new boolean[] {false, true}) {
+            ConcurrentLockFreeQueue<Integer> queue = new ConcurrentLockFreeQueue<>(4, recycleNodes);
+            assertEquals(3, queue.offerBatch(new Integer[] {1, 2, 3}));
+            assertEquals(1, queue.offerBatch(new Integer[] {4, 5}));
+            List<Integer> drained = new ArrayList<>();
+            assertEquals(2, queue.drainTo(drained::add, 2));
+            assertEquals(2, queue.offerBatch(new Integer[] {5, 6}));
+            assertEquals(4, queue.drainTo(drained::add, 10));
+            assertEquals(0, queue.drainTo(drained::add, 10));
+            assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6), drained);
+            assertEquals(0, queue.size());
+            queue.add(7);
+            assertEquals(new Integer(7), queue.get());
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentBatches() throws InterruptedException {
+        QueueChecks.batchesAcrossThreads(new ConcurrentLockFreeQueue<>(64), 3, 3);
+        QueueChecks.batchesAcrossThreads(new ConcurrentLockFreeQueue<>(64, true), 3, 3);
+    }
+
+    /**
+     * drainTo racing get over recycled nodes, the dummy left by a drain must not be reused before it is read.
+     */
+    @Test(timeout = 120000)
+    public void testConcurrentBatchesWithRecyclingRepeated() throws InterruptedException {
+        for (int round = 0; round < 10; round++) {
+            QueueChecks.batchesAcrossThreads(new ConcurrentLockFreeQueue<>(64, true), 2, 3);
+        }
+    }
+}
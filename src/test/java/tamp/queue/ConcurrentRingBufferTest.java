@@ -1,6 +1,15 @@
 package tamp.queue;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -61,4 +70,126 @@ public class ConcurrentRingBufferTest {
         ringBuffer.add(6);
         System.out.println(ringBuffer);
     }
+
+    @Test
+    public void testFifoAcrossRounds() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(ringBuffer.offer(3 * i));
+            assertTrue(ringBuffer.offer(3 * i + 1));
+            assertTrue(ringBuffer.offer(3 * i + 2));
+            assertEquals(new Integer(3 * i), ringBuffer.poll());
+            assertEquals(new Integer(3 * i + 1), ringBuffer.poll());
+            assertEquals(new Integer(3 * i + 2), ringBuffer.poll());
+        }
+        assertNull(ringBuffer.poll());
+    }
+
+    @Test
+    public void testOfferWhenFull() {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ringBuffer.offer(i));
+        }
+        assertFalse(ringBuffer.offer(4));
+        assertEquals(4, ringBuffer.size());
+        assertEquals("0, 1, 2, 3", ringBuffer.toString());
+        assertEquals(new Integer(0), ringBuffer.poll());
+        assertTrue(ringBuffer.offer(4));
+        assertEquals("1, 2, 3, 4", ringBuffer.toString());
+    }
+
+    @Test
+    public void testCapacityRoundedUp() {
+        assertEquals(8, new ConcurrentRingBuffer<Integer>(5).capacity());
+        assertEquals(4, ringBuffer.capacity());
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentProducersAndConsumers() throws InterruptedException {
+        int producers = 3;
+        int perProducer = 50000;
+        ConcurrentRingBuffer<Integer> queue = new ConcurrentRingBuffer<>(64);
+        AtomicIntegerArray seen = new AtomicIntegerArray(producers * perProducer);
+        AtomicInteger consumed = new AtomicInteger();
+        Thread[] threads = new Thread[producers * 2];
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            threads[p] = new Thread(() -> {
+                for (int i = first; i < first + perProducer; i++) {
+                    while (!queue.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+        for (int c = producers; c < threads.length; c++) {
+            threads[c] = new Thread(() -> {
+                while (consumed.get() < producers * perProducer) {
+                    Integer element = queue.poll();
+                    if (element == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    seen.incrementAndGet(element);
+                    consumed.incrementAndGet();
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < seen.length(); i++) {
+            assertEquals(1, seen.get(i));
+        }
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testBatch() {
+        assertEquals(3, ringBuffer.offerBatch(new Integer[] {1, 2, 3}));
+        assertEquals(1, ringBuffer.offerBatch(new Integer[] {4, 5}));
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(2, ringBuffer.drainTo(drained::add, 2));
+        assertEquals(2, ringBuffer.offerBatch(new Integer[] {5, 6}));
+        assertEquals(4, ringBuffer.drainTo(drained::add, 10));
+        assertEquals(0, ringBuffer.drainTo(drained::add, 10));
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6), drained);
+    }
+
+    @Test
+    public void testDrainToWithThrowingConsumer() {
+        assertEquals(4, ringBuffer.offerBatch(new Integer[] {1, 2, 3, 4}));
+        try {
+            ringBuffer.drainTo(element -> {
+                throw new IllegalStateException();
+            }, 4);
+        } catch (IllegalStateException expected) {
+            // the elements not handed yet are lost, the slots are not
+        }
+        assertEquals(0, ringBuffer.size());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ringBuffer.offer(i));
+        }
+        assertFalse(ringBuffer.offer(4));
+        for (int i = 0; i < 4; i++) {
+            assertEquals(new Integer(i), ringBuffer.poll());
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testAddAllWhenFull() {
+        ringBuffer.addAll(new Integer[] {1, 2, 3, 4, 5});
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentBatches() throws InterruptedException {
+        QueueChecks.batchesAcrossThreads(new ConcurrentRingBuffer<>(64), 3, 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityAboveMax() {
+        new ConcurrentRingBuffer<Integer>((1 << 30) + 1);
+    }
 }
@@ -0,0 +1,105 @@
+package tamp.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MpscArrayQueueTest {
+
+    @Test
+    public void testFifoAcrossRounds() {
+        MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(4);
+        assertNull(queue.poll());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(queue.offer(2 * i));
+            assertTrue(queue.offer(2 * i + 1));
+            assertEquals(new Integer(2 * i), queue.poll());
+            assertEquals(new Integer(2 * i + 1), queue.poll());
+        }
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testOfferWhenFull() {
+        MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+        assertEquals(new Integer(0), queue.poll());
+        assertTrue(queue.offer(4));
+        assertEquals(4, queue.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNull() {
+        new MpscArrayQueue<Integer>(4).offer(null);
+    }
+
+    /**
+     * Each producer's elements come out in the order it added them.
+     */
+    @Test(timeout = 60000)
+    public void testProducersAndConsumer() throws InterruptedException {
+        int producers = 3;
+        int perProducer = 50000;
+        MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(64);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            threads[p] = new Thread(() -> {
+                for (int i = first; i < first + perProducer; i++) {
+                    while (!queue.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        int[] next = new int[producers];
+        for (int p = 0; p < producers; p++) {
+            next[p] = p * perProducer;
+        }
+        for (int i = 0; i < producers * perProducer; i++) {
+            Integer element;
+            while ((element = queue.poll()) == null) {
+                Thread.yield();
+            }
+            assertEquals(next[element / perProducer]++, element.intValue());
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testBatch() {
+        MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(4);
+        assertEquals(3, queue.offerBatch(new Integer[] {1, 2, 3}));
+        assertEquals(1, queue.offerBatch(new Integer[] {4, 5}));
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(2, queue.drainTo(drained::add, 2));
+        assertEquals(2, queue.offerBatch(new Integer[] {5, 6}));
+        assertEquals(4, queue.drainTo(drained::add, 10));
+        assertEquals(0, queue.drainTo(drained::add, 10));
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6), drained);
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentBatches() throws InterruptedException {
+        QueueChecks.batchesAcrossThreads(new MpscArrayQueue<>(64), 3, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityAboveMax() {
+        new MpscArrayQueue<Integer>((1 << 30) + 1);
+    }
+}
@@ -0,0 +1,75 @@
+package tamp.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MpscLinkedQueueTest {
+
+    @Test
+    public void testFifo() {
+        MpscLinkedQueue<Integer> queue = new MpscLinkedQueue<>();
+        assertNull(queue.get());
+        for (int i = 0; i < 1000; i++) {
+            queue.add(i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(new Integer(i), queue.get());
+        }
+        assertNull(queue.get());
+    }
+
+    @Test(timeout = 60000)
+    public void testProducersAndConsumer() throws InterruptedException {
+        int producers = 3;
+        int perProducer = 50000;
+        MpscLinkedQueue<Integer> queue = new MpscLinkedQueue<>();
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            threads[p] = new Thread(() -> {
+                for (int i = first; i < first + perProducer; i++) {
+                    queue.add(i);
+                }
+            });
+            threads[p].start();
+        }
+        int[] next = new int[producers];
+        for (int p = 0; p < producers; p++) {
+            next[p] = p * perProducer;
+        }
+        for (int i = 0; i < producers * perProducer; i++) {
+            Integer element;
+            while ((element = queue.get()) == null) {
+                Thread.yield();
+            }
+            assertEquals(next[element / perProducer]++, element.intValue());
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(queue.get());
+    }
+
+    @Test
+    public void testBatch() {
+        MpscLinkedQueue<Integer> queue = new MpscLinkedQueue<>();
+        assertEquals(3, queue.offerBatch(new Integer[] {1, 2, 3}));
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(2, queue.drainTo(drained::add, 2));
+        assertEquals(2, queue.offerBatch(new Integer[] {4, 5}));
+        assertEquals(3, queue.drainTo(drained::add, 10));
+        assertEquals(0, queue.drainTo(drained::add, 10));
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), drained);
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentBatches() throws InterruptedException {
+        QueueChecks.batchesAcrossThreads(new MpscLinkedQueue<>(), 3, 1);
+    }
+}
@@ -0,0 +1,93 @@
+package tamp.queue;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Checks shared by the queue tests.
+ */
+final class QueueChecks {
+
+    private QueueChecks() {
+    }
+
+    /**
+     * Producers offer batches of 7 and consumers alternate drains of up to 5 and single gets,
+     * every element must come out exactly once.
+     * A thread that fails stops the others, and its failure is rethrown.
+     */
+    static void batchesAcrossThreads(final SimpleQueue<Integer> queue, final int producers, final int consumers)
+        throws InterruptedException {
+        int perProducer = 7 * 5000;
+        AtomicIntegerArray seen = new AtomicIntegerArray(producers * perProducer);
+        AtomicInteger consumed = new AtomicInteger();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        Thread[] threads = new Thread[producers + consumers];
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            threads[p] = new Thread(() -> {
+                Integer[] batch = new Integer[7];
+                for (int i = first; i < first + perProducer && failures.isEmpty(); i += batch.length) {
+                    for (int j = 0; j < batch.length; j++) {
+                        batch[j] = i + j;
+                    }
+                    int offered = 0;
+                    while (offered < batch.length && failures.isEmpty()) {
+                        Integer[] rest = new Integer[batch.length - offered];
+                        System.arraycopy(batch, offered, rest, 0, rest.length);
+                        offered += queue.offerBatch(rest);
+                        if (offered < batch.length) {
+                            Thread.yield(); // full
+                        }
+                    }
+                }
+            });
+        }
+        for (int c = producers; c < threads.length; c++) {
+            threads[c] = new Thread(() -> {
+                boolean drain = true;
+                while (consumed.get() < producers * perProducer && failures.isEmpty()) {
+                    int received;
+                    if (drain) {
+                        received = queue.drainTo(element -> see(seen, element), 5);
+                    } else {
+                        Integer element = queue.get();
+                        received = element == null ? 0 : 1;
+                        if (element != null) {
+                            see(seen, element);
+                        }
+                    }
+                    drain = !drain;
+                    if (received == 0) {
+                        Thread.yield();
+                    }
+                    consumed.addAndGet(received);
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.setUncaughtExceptionHandler((t, e) -> failures.add(e));
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (!failures.isEmpty()) {
+            throw new AssertionError(failures.size() + " threads failed", failures.peek());
+        }
+        for (int i = 0; i < seen.length(); i++) {
+            assertEquals(1, seen.get(i));
+        }
+    }
+
+    private static void see(final AtomicIntegerArray seen, final Integer element) {
+        if (element == null) {
+            throw new AssertionError("null element handed to the consumer");
+        }
+        seen.incrementAndGet(element);
+    }
+}
@@ -0,0 +1,27 @@
+package tamp.queue;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class QueuesTest {
+
+    @Test
+    public void testBounded() {
+        assertTrue(Queues.bounded(1, 1, 8) instanceof SpscArrayQueue);
+        assertTrue(Queues.bounded(4, 1, 8) instanceof MpscArrayQueue);
+        assertTrue(Queues.bounded(1, 4, 8) instanceof ConcurrentRingBuffer);
+        assertTrue(Queues.bounded(4, 4, 8) instanceof ConcurrentRingBuffer);
+    }
+
+    @Test
+    public void testUnbounded() {
+        assertTrue(Queues.unbounded(4, 1) instanceof MpscLinkedQueue);
+        assertTrue(Queues.unbounded(4, 4) instanceof ConcurrentLockFreeQueue);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoProducer() {
+        Queues.bounded(0, 1, 8);
+    }
+}
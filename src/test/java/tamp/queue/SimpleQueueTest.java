@@ -0,0 +1,32 @@
+package tamp.queue;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SimpleQueueTest {
+
+    @Test
+    public void testOfferBatchStopsWhenFull() {
+        SimpleQueue<Integer> queue = new SimpleArrayQueue<>(3);
+        assertEquals(3, queue.offerBatch(new Integer[] {1, 2, 3, 4, 5}));
+        assertEquals(new Integer(1), queue.get());
+        assertEquals(1, queue.offerBatch(new Integer[] {4, 5}));
+    }
+
+    @Test(expected = QueueFullException.class)
+    public void testAddAllWhenFull() {
+        new SimpleArrayQueue<Integer>(3).addAll(new Integer[] {1, 2, 3, 4});
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testOfferBatchOnlyTakesFullForFull() {
+        SimpleQueue<Integer> queue = new SimpleListQueue<Integer>() {
+            @Override
+            public void add(Integer value) {
+                super.add(value.intValue() + 1); // fails on null, which is not a full queue
+            }
+        };
+        queue.offerBatch(new Integer[] {1, null, 3});
+    }
+}
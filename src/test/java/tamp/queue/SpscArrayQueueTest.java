@@ -0,0 +1,94 @@
+package tamp.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SpscArrayQueueTest {
+
+    @Test
+    public void testFifoAcrossRounds() {
+        SpscArrayQueue<Integer> queue = new SpscArrayQueue<>(4);
+        assertNull(queue.poll());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(queue.offer(2 * i));
+            assertTrue(queue.offer(2 * i + 1));
+            assertEquals(new Integer(2 * i), queue.poll());
+            assertEquals(new Integer(2 * i + 1), queue.poll());
+        }
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testOfferWhenFull() {
+        SpscArrayQueue<Integer> queue = new SpscArrayQueue<>(3);
+        assertEquals(4, queue.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+        assertEquals(4, queue.size());
+        assertEquals(new Integer(0), queue.poll());
+        assertTrue(queue.offer(4));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testAddWhenFull() {
+        SpscArrayQueue<Integer> queue = new SpscArrayQueue<>(1);
+        queue.add(1);
+        queue.add(2);
+    }
+
+    @Test(timeout = 60000)
+    public void testProducerAndConsumer() throws InterruptedException {
+        int n = 200000;
+        SpscArrayQueue<Integer> queue = new SpscArrayQueue<>(64);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < n; i++) {
+                while (!queue.offer(i)) {
+                    Thread.yield();
+                }
+            }
+        });
+        producer.start();
+        for (int i = 0; i < n; i++) {
+            Integer element;
+            while ((element = queue.poll()) == null) {
+                Thread.yield();
+            }
+            assertEquals(i, element.intValue());
+        }
+        producer.join();
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testBatch() {
+        SpscArrayQueue<Integer> queue = new SpscArrayQueue<>(4);
+        assertEquals(3, queue.offerBatch(new Integer[] {1, 2, 3}));
+        assertEquals(1, queue.offerBatch(new Integer[] {4, 5}));
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(2, queue.drainTo(drained::add, 2));
+        assertEquals(2, queue.offerBatch(new Integer[] {5, 6}));
+        assertEquals(4, queue.drainTo(drained::add, 10));
+        assertEquals(0, queue.drainTo(drained::add, 10));
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6), drained);
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentBatches() throws InterruptedException {
+        QueueChecks.batchesAcrossThreads(new SpscArrayQueue<>(64), 1, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityAboveMax() {
+        new SpscArrayQueue<Integer>((1 << 30) + 1);
+    }
+}
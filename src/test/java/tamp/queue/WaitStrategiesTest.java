@@ -0,0 +1,171 @@
+package tamp.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+public class WaitStrategiesTest {
+
+    private static final List<Supplier<WaitStrategy>> STRATEGIES = Arrays.asList(
+        WaitStrategies::busySpin,
+        WaitStrategies::spinThenYield,
+        WaitStrategies::spinThenPark,
+        () -> WaitStrategies.timedPark(100, TimeUnit.MICROSECONDS),
+        WaitStrategies::blocking);
+
+    @Test(timeout = 30000)
+    public void testConsumersGetEveryElement() throws InterruptedException {
+        for (Supplier<WaitStrategy> strategies : STRATEGIES) {
+            int n = 2000;
+            ConcurrentRingBuffer<Integer> queue = new ConcurrentRingBuffer<>(16);
+            WaitStrategy strategy = strategies.get();
+            AtomicIntegerArray seen = new AtomicIntegerArray(n);
+            Thread[] consumers = new Thread[3];
+            for (int c = 0; c < consumers.length; c++) {
+                consumers[c] = new Thread(() -> {
+                    try {
+                        while (true) {
+                            int element = strategy.waitFor(queue::poll);
+                            if (element < 0) {
+                                return; // one end marker per consumer
+                            }
+                            seen.incrementAndGet(element);
+                        }
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                consumers[c].start();
+            }
+            for (int i = 0; i < n + consumers.length; i++) {
+                while (!queue.offer(i < n ? i : -1)) {
+                    Thread.yield();
+                }
+                strategy.signal();
+            }
+            for (Thread consumer : consumers) {
+                consumer.join();
+            }
+            for (int i = 0; i < n; i++) {
+                assertEquals(1, seen.get(i));
+            }
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testInterrupt() throws InterruptedException {
+        for (Supplier<WaitStrategy> strategies : STRATEGIES) {
+            WaitStrategy strategy = strategies.get();
+            AtomicBoolean interrupted = new AtomicBoolean();
+            Thread waiter = new Thread(() -> {
+                try {
+                    strategy.waitFor(() -> null);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+            });
+            waiter.start();
+            Thread.sleep(10);
+            waiter.interrupt();
+            waiter.join();
+            assertTrue(interrupted.get());
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testSignalAll() throws InterruptedException {
+        for (Supplier<WaitStrategy> strategies : STRATEGIES) {
+            WaitStrategy strategy = strategies.get();
+            AtomicBoolean done = new AtomicBoolean();
+            AtomicInteger woken = new AtomicInteger();
+            Thread[] waiters = new Thread[3];
+            for (int i = 0; i < waiters.length; i++) {
+                waiters[i] = new Thread(() -> {
+                    try {
+                        strategy.waitFor(() -> done.get() ? Boolean.TRUE : null);
+                        woken.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                waiters[i].start();
+            }
+            Thread.sleep(10);
+            done.set(true);
+            strategy.signalAll();
+            for (Thread waiter : waiters) {
+                waiter.join();
+            }
+            assertEquals(waiters.length, woken.get());
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testConcurrentQueueWSignal() throws InterruptedException {
+        for (Supplier<WaitStrategy> strategies : STRATEGIES) {
+            int n = 2000;
+            ConcurrentQueueWSignal<Integer> queue =
+                new ConcurrentQueueWSignal<>(8, strategies.get(), strategies.get());
+            Thread producer = new Thread(() -> {
+                try {
+                    for (int i = 0; i < n; i++) {
+                        queue.add(i); // waits when full
+                    }
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            producer.start();
+            for (int i = 0; i < n; i++) {
+                assertEquals(new Integer(i), queue.get());
+            }
+            producer.join();
+            assertNull(queue.poll());
+            assertEquals(0, queue.size());
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testSingleProducerMultipleConsumers() throws InterruptedException {
+        for (Supplier<WaitStrategy> strategies : STRATEGIES) {
+            int n = 2000;
+            List<Integer> elements = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                elements.add(i);
+            }
+            SingleProducerMultipleConsumers<Integer> spmc =
+                new SingleProducerMultipleConsumers.Builder<>(elements.iterator(), 16)
+                    .waitStrategy(strategies.get())
+                    .start();
+            AtomicIntegerArray seen = new AtomicIntegerArray(n);
+            Thread[] consumers = new Thread[3];
+            for (int c = 0; c < consumers.length; c++) {
+                consumers[c] = new Thread(() -> {
+                    Integer element;
+                    while ((element = spmc.get()) != null) {
+                        seen.incrementAndGet(element);
+                    }
+                });
+                consumers[c].start();
+            }
+            for (Thread consumer : consumers) {
+                consumer.join();
+            }
+            for (int i = 0; i < n; i++) {
+                assertEquals(1, seen.get(i));
+            }
+            assertTrue(spmc.finishedWithErrors().isEmpty());
+        }
+    }
+}
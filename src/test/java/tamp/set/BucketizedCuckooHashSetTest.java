@@ -0,0 +1,163 @@
+package tamp.set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class BucketizedCuckooHashSetTest {
+
+    BucketizedCuckooHashSet<Integer> set;
+
+    @Test
+    public void testAdd() {
+        set = new BucketizedCuckooHashSet<Integer>(4);
+        set.add(10);
+        assertTrue(set.contains(10));
+    }
+
+    @Test
+    public void testAddNegtive() {
+        set = new BucketizedCuckooHashSet<Integer>(4);
+        set.add(-10);
+        assertTrue(set.contains(-10));
+    }
+
+    @Test
+    public void testAddRemoveAndContains() {
+        set = new BucketizedCuckooHashSet<Integer>(4);
+        set.add(10);
+        set.remove(10);
+        assertFalse(set.contains(10));
+    }
+
+    @Test
+    public void testAddDuplicateRemoveAndContains() {
+        set = new BucketizedCuckooHashSet<Integer>(4);
+        set.add(10);
+        set.add(10);
+        assertEquals(1, set.size());
+        set.remove(10);
+        assertFalse(set.contains(10));
+    }
+
+    @Test
+    public void testRemoveWhenNotExists() {
+        set = new BucketizedCuckooHashSet<Integer>(4);
+        assertFalse(set.remove(10));
+        assertFalse(set.contains(10));
+    }
+
+    @Test
+    public void testForceResizeThenCheckContains() {
+        set = new BucketizedCuckooHashSet<Integer>(4);
+        for (int i = 0; i < 1000; i++) {
+            set.add(i);
+        }
+        assertEquals(1000, set.size());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(set.contains(i));
+        }
+        assertFalse(set.contains(1000));
+    }
+
+    @Test
+    public void testOnlyGrowsAboveNinetyPercent() {
+        set = new BucketizedCuckooHashSet<Integer>(1 << 16);
+        Random random = new Random(42);
+        int capacity = set.capacity();
+        double loadFactor = 0;
+        while (set.capacity() == capacity) {
+            loadFactor = set.loadFactor();
+            set.add(random.nextInt());
+        }
+        assertTrue("grew at " + loadFactor, loadFactor > 0.9);
+    }
+
+    @Test
+    public void testSameAsHashSet() {
+        set = new BucketizedCuckooHashSet<Integer>(4);
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            int element = random.nextInt(5000);
+            if (random.nextInt(3) > 0) {
+                set.add(element);
+                expected.add(element);
+            } else {
+                assertEquals(expected.remove(element), set.remove(element));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        for (int element = 0; element < 5000; element++) {
+            assertEquals(expected.contains(element), set.contains(element));
+        }
+    }
+
+    @Test
+    public void testManySameHashCodeKeepTheTablesSmall() {
+        BucketizedCuckooHashSet<String> strings = new BucketizedCuckooHashSet<>(4);
+        List<String> colliding = new ArrayList<>();
+        colliding.add("");
+        for (int i = 0; i < 8; i++) {
+            List<String> longer = new ArrayList<>();
+            for (String prefix : colliding) {
+                longer.add(prefix + "Aa");
+                longer.add(prefix + "BB");
+            }
+            colliding = longer;
+        }
+        for (String element : colliding) {
+            strings.add(element);
+        }
+        assertEquals(colliding.size(), strings.size());
+        assertTrue(strings.capacity() <= 4 * colliding.size());
+        for (String element : colliding) {
+            assertTrue(strings.contains(element));
+        }
+        assertEquals(colliding.size(), strings.stream().count());
+        assertTrue(strings.removeIf(s -> s.startsWith("Aa")));
+        assertEquals(colliding.size() / 2, strings.size());
+        for (String element : colliding) {
+            assertEquals(!element.startsWith("Aa"), strings.contains(element));
+        }
+        assertTrue(strings.remove("BBBBBBBBBBBBBBBB"));
+        assertFalse(strings.contains("BBBBBBBBBBBBBBBB"));
+    }
+
+    @Test
+    public void testRemoveIf() {
+        set = new BucketizedCuckooHashSet<Integer>(4);
+        for (int i = 0; i < 100; i++) {
+            set.add(i);
+        }
+        assertTrue(set.removeIf(i -> i % 3 == 0));
+        assertFalse(set.removeIf(i -> i % 3 == 0));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i % 3 != 0, set.contains(i));
+        }
+    }
+
+    @Test
+    public void testStream() {
+        set = new BucketizedCuckooHashSet<Integer>(4);
+        for (int i = 0; i < 1000; i++) {
+            set.add(i);
+        }
+        assertEquals(1000, set.stream().parallel().count());
+        assertEquals(499500, set.stream().parallel().mapToInt(i -> i).sum());
+        int count = 0;
+        for (int element : set) {
+            assertTrue(element >= 0 && element < 1000);
+            count++;
+        }
+        assertEquals(1000, count);
+    }
+}
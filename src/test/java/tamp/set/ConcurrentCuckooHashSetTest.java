@@ -0,0 +1,190 @@
+package tamp.set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class ConcurrentCuckooHashSetTest {
+
+    ConcurrentCuckooHashSet<Integer> set;
+
+    @Test
+    public void testAdd() {
+        set = new ConcurrentCuckooHashSet<Integer>(4);
+        set.add(10);
+        assertTrue(set.contains(10));
+    }
+
+    @Test
+    public void testAddNegtive() {
+        set = new ConcurrentCuckooHashSet<Integer>(4);
+        set.add(-10);
+        assertTrue(set.contains(-10));
+    }
+
+    @Test
+    public void testAddRemoveAndContains() {
+        set = new ConcurrentCuckooHashSet<Integer>(4);
+        set.add(10);
+        set.remove(10);
+        assertFalse(set.contains(10));
+    }
+
+    @Test
+    public void testAddDuplicateRemoveAndContains() {
+        set = new ConcurrentCuckooHashSet<Integer>(4);
+        set.add(10);
+        set.add(10);
+        assertEquals(1, set.size());
+        set.remove(10);
+        assertFalse(set.contains(10));
+    }
+
+    @Test
+    public void testRemoveWhenNotExists() {
+        set = new ConcurrentCuckooHashSet<Integer>(4);
+        assertFalse(set.remove(10));
+        assertFalse(set.contains(10));
+    }
+
+    @Test
+    public void testForceResizeThenCheckContains() {
+        set = new ConcurrentCuckooHashSet<Integer>(4);
+        for (int i = 0; i < 1000; i++) {
+            set.add(i);
+        }
+        assertEquals(1000, set.size());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(set.contains(i));
+        }
+        assertFalse(set.contains(1000));
+    }
+
+    @Test
+    public void testConcurrentAddRemoveAndContains() throws InterruptedException {
+        final int numberOfThreads = 8;
+        final int perThread = 10000;
+        set = new ConcurrentCuckooHashSet<Integer>(4);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numberOfThreads; t++) {
+            final int offset = t;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    set.add(i * numberOfThreads + offset);
+                }
+                for (int i = 0; i < perThread; i++) {
+                    // concurrent displacements and resizes must never hide an element
+                    if (!set.contains(i * numberOfThreads + offset)) {
+                        throw new AssertionError();
+                    }
+                }
+                for (int i = 1; i < perThread; i += 2) {
+                    set.remove(i * numberOfThreads + offset);
+                }
+            }));
+        }
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        for (Thread thread : threads) {
+            thread.setUncaughtExceptionHandler((th, e) -> errors.add(e));
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(errors.isEmpty());
+        assertEquals(numberOfThreads * perThread / 2, set.size());
+        for (int i = 0; i < perThread * numberOfThreads; i++) {
+            assertEquals((i / numberOfThreads) % 2 == 0, set.contains(i));
+        }
+    }
+
+    @Test
+    public void testSameHashCode() {
+        ConcurrentCuckooHashSet<String> strings = new ConcurrentCuckooHashSet<>(4);
+        strings.add("AaAa");
+        strings.add("AaBB");
+        strings.add("BBAa");
+        assertTrue(strings.contains("AaAa"));
+        assertTrue(strings.contains("AaBB"));
+        assertTrue(strings.contains("BBAa"));
+        assertFalse(strings.contains("BBBB1"));
+        assertEquals(3, strings.size());
+        assertEquals(4, strings.capacity());
+        assertTrue(strings.remove("AaBB"));
+        assertFalse(strings.contains("AaBB"));
+        assertTrue(strings.contains("BBAa"));
+    }
+
+    @Test
+    public void testManySameHashCodeKeepTheTablesSmall() {
+        ConcurrentCuckooHashSet<String> strings = new ConcurrentCuckooHashSet<>(4);
+        List<String> colliding = new ArrayList<>();
+        colliding.add("");
+        for (int i = 0; i < 8; i++) {
+            List<String> longer = new ArrayList<>();
+            for (String prefix : colliding) {
+                longer.add(prefix + "Aa");
+                longer.add(prefix + "BB");
+            }
+            colliding = longer;
+        }
+        for (String element : colliding) {
+            strings.add(element);
+        }
+        assertEquals(colliding.size(), strings.size());
+        assertTrue(strings.capacity() <= 4 * colliding.size());
+        for (String element : colliding) {
+            assertTrue(strings.contains(element));
+        }
+        assertEquals(colliding.size(), strings.stream().count());
+        assertTrue(strings.removeIf(s -> s.startsWith("Aa")));
+        assertEquals(colliding.size() / 2, strings.size());
+        for (String element : colliding) {
+            assertEquals(!element.startsWith("Aa"), strings.contains(element));
+        }
+    }
+
+    @Test
+    public void testRemoveIf() {
+        set = new ConcurrentCuckooHashSet<Integer>(4);
+        for (int i = 0; i < 100; i++) {
+            set.add(i);
+        }
+        assertTrue(set.removeIf(i -> i % 3 == 0));
+        assertFalse(set.removeIf(i -> i % 3 == 0));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i % 3 != 0, set.contains(i));
+        }
+    }
+
+    @Test
+    public void testStream() {
+        set = new ConcurrentCuckooHashSet<Integer>(4);
+        for (int i = 0; i < 1000; i++) {
+            set.add(i);
+        }
+        assertEquals(1000, set.stream().parallel().count());
+        assertEquals(499500, set.stream().parallel().mapToInt(i -> i).sum());
+        int count = 0;
+        for (int element : set) {
+            assertTrue(element >= 0 && element < 1000);
+            count++;
+        }
+        assertEquals(1000, count);
+    }
+}
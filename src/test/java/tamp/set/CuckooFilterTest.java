@@ -0,0 +1,143 @@
+package tamp.set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class CuckooFilterTest {
+
+    CuckooFilter<Integer> filter;
+
+    @Test
+    public void testAdd() {
+        filter = new CuckooFilter<Integer>(100, 0.01);
+        filter.add(10);
+        assertTrue(filter.contains(10));
+    }
+
+    @Test
+    public void testAddRemoveAndContains() {
+        filter = new CuckooFilter<Integer>(100, 0.01);
+        filter.add(10);
+        assertTrue(filter.remove(10));
+        assertFalse(filter.contains(10));
+    }
+
+    @Test
+    public void testAddTwiceHasToBeRemovedTwice() {
+        filter = new CuckooFilter<Integer>(100, 0.01);
+        filter.add(10);
+        filter.add(10);
+        filter.remove(10);
+        assertTrue(filter.contains(10));
+        filter.remove(10);
+        assertFalse(filter.contains(10));
+    }
+
+    @Test
+    public void testFingerprintBits() {
+        assertEquals(4, new CuckooFilter<Integer>(100, 0.6).fingerprintBits());
+        assertEquals(8, new CuckooFilter<Integer>(100, 0.05).fingerprintBits());
+        assertEquals(16, new CuckooFilter<Integer>(100, 0.001).fingerprintBits());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFalsePositiveRateTooLow() {
+        new CuckooFilter<Integer>(100, 0.00001);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddWhenFull() {
+        filter = new CuckooFilter<Integer>(100, 0.01);
+        for (int i = 0; i < filter.capacity() + 1; i++) {
+            filter.add(i);
+        }
+    }
+
+    @Test
+    public void testNoFalseNegativeAndFalsePositiveRate() {
+        int n = 100000;
+        for (double rate : new double[]{0.05, 0.001}) {
+            filter = new CuckooFilter<Integer>(n, rate);
+            for (int i = 0; i < n; i++) {
+                filter.add(i);
+            }
+            assertEquals(n, filter.size());
+            for (int i = 0; i < n; i++) {
+                assertTrue(filter.contains(i));
+            }
+            int falsePositives = 0;
+            for (int i = n; i < 2 * n; i++) {
+                if (filter.contains(i)) {
+                    falsePositives++;
+                }
+            }
+            assertTrue("false positives: " + falsePositives, falsePositives <= rate * n);
+
+            for (int i = 1; i < n; i += 2) {
+                assertTrue(filter.remove(i));
+            }
+            for (int i = 0; i < n; i += 2) {
+                assertTrue(filter.contains(i));
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentAddRemoveAndContains() throws InterruptedException {
+        final int numberOfThreads = 8;
+        final int perThread = 30000;
+        // 91% full, so that many adds go through displacements
+        filter = new CuckooFilter<Integer>(numberOfThreads * perThread, 0.01);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numberOfThreads; t++) {
+            final int offset = t;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    filter.add(i * numberOfThreads + offset);
+                }
+                for (int i = 0; i < perThread; i++) {
+                    // concurrent displacements must never hide a fingerprint
+                    if (!filter.contains(i * numberOfThreads + offset)) {
+                        throw new AssertionError();
+                    }
+                }
+                for (int i = 1; i < perThread; i += 2) {
+                    if (!filter.remove(i * numberOfThreads + offset)) {
+                        throw new AssertionError();
+                    }
+                }
+            }));
+        }
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        for (Thread thread : threads) {
+            thread.setUncaughtExceptionHandler((th, e) -> errors.add(e));
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(numberOfThreads * perThread / 2, filter.size());
+        for (int i = 0; i < perThread * numberOfThreads; i += 2 * numberOfThreads) {
+            for (int t = 0; t < numberOfThreads; t++) {
+                assertTrue(filter.contains(i + t));
+            }
+        }
+    }
+}
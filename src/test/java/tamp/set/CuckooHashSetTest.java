@@ -1,8 +1,12 @@
 package tamp.set;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 
 import tamp.set.CuckooHashSet;
@@ -58,8 +62,102 @@ public class CuckooHashSetTest {
 
     @Test
     public void testForceResizeThenCheckContains() {
+        set = new CuckooHashSet<Integer>(4);
+        for (int i = 0; i < 100; i++) {
+            set.add(i);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertTrue(set.contains(i));
+        }
+        assertFalse(set.contains(100));
+    }
+
+    @Test
+    public void testEveryHashFamily() {
+        for (HashFamilies hashFamily : HashFamilies.values()) {
+            set = new CuckooHashSet<Integer>(4, hashFamily);
+            for (int i = -100; i < 100; i++) {
+                set.add(i);
+            }
+            for (int i = -100; i < 100; i++) {
+                assertTrue(hashFamily.name(), set.contains(i));
+            }
+            assertFalse(set.contains(100));
+        }
+    }
+
+    @Test
+    public void testSameHashCode() {
+        CuckooHashSet<String> strings = new CuckooHashSet<>(4);
+        strings.add("AaAa");
+        strings.add("AaBB");
+        strings.add("BBAa");
+        assertTrue(strings.contains("AaAa"));
+        assertTrue(strings.contains("AaBB"));
+        assertTrue(strings.contains("BBAa"));
+        assertFalse(strings.contains("BBBB1"));
+        assertEquals(3, strings.size());
+        assertEquals(4, strings.capacity());
+        assertTrue(strings.remove("AaBB"));
+        assertFalse(strings.contains("AaBB"));
+        assertTrue(strings.contains("BBAa"));
+    }
 
+    @Test
+    public void testManySameHashCodeKeepTheTablesSmall() {
+        CuckooHashSet<String> strings = new CuckooHashSet<>(4);
+        List<String> colliding = new ArrayList<>();
+        colliding.add("");
+        for (int i = 0; i < 8; i++) {
+            List<String> longer = new ArrayList<>();
+            for (String prefix : colliding) {
+                longer.add(prefix + "Aa");
+                longer.add(prefix + "BB");
+            }
+            colliding = longer;
+        }
+        for (String element : colliding) {
+            strings.add(element);
+        }
+        assertEquals(colliding.size(), strings.size());
+        assertTrue(strings.capacity() <= 4 * colliding.size());
+        for (String element : colliding) {
+            assertTrue(strings.contains(element));
+        }
+        assertEquals(colliding.size(), strings.stream().count());
+        assertTrue(strings.removeIf(s -> s.startsWith("Aa")));
+        assertEquals(colliding.size() / 2, strings.size());
+        for (String element : colliding) {
+            assertEquals(!element.startsWith("Aa"), strings.contains(element));
+        }
     }
 
+    @Test
+    public void testRemoveIf() {
+        set = new CuckooHashSet<Integer>(4);
+        for (int i = 0; i < 100; i++) {
+            set.add(i);
+        }
+        assertTrue(set.removeIf(i -> i % 3 == 0));
+        assertFalse(set.removeIf(i -> i % 3 == 0));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i % 3 != 0, set.contains(i));
+        }
+    }
 
+    @Test
+    public void testStream() {
+        set = new CuckooHashSet<Integer>(4);
+        for (int i = 0; i < 1000; i++) {
+            set.add(i);
+        }
+        assertEquals(1000, set.stream().parallel().count());
+        assertEquals(499500, set.stream().parallel().mapToInt(i -> i).sum());
+        int count = 0;
+        for (int element : set) {
+            assertTrue(element >= 0 && element < 1000);
+            count++;
+        }
+        assertEquals(1000, count);
+    }
 }
@@ -0,0 +1,25 @@
+package tamp.set;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class HashFamiliesTest {
+
+    @Test
+    public void testEveryFunctionOfEveryFamily() {
+        for (HashFamilies hashFamily : HashFamilies.values()) {
+            for (int hashCode : new int[] {0, 1, -1, 42}) {
+                Set<Integer> hashes = new HashSet<>();
+                for (int function = 0; function < HashFamilies.FUNCTIONS; function++) {
+                    hashes.add(hashFamily.hash(function, hashCode));
+                }
+                // the functions have to differ, else an element would get the same slot in every table
+                assertEquals(hashFamily.name(), HashFamilies.FUNCTIONS, hashes.size());
+            }
+        }
+    }
+}
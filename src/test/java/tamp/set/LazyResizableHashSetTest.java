@@ -4,6 +4,13 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
 import org.junit.Test;
 
 import tamp.set.LazyResizableHashSet;
@@ -88,4 +95,129 @@ public class LazyResizableHashSetTest {
         Thread.sleep(1000); // sleep to make sure the async resize is done
         assertEquals(32, set.capacity());
     }
+
+    @Test
+    public void testConcurrentAddDuringResize() throws InterruptedException {
+        final int numberOfThreads = 8;
+        final int perThread = 20000;
+        final LazyResizableHashSet<Integer> set = new LazyResizableHashSet<>(4);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numberOfThreads; t++) {
+            final int offset = t;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    set.add(i * numberOfThreads + offset);
+                    // the element may be in a bucket being moved by another thread
+                    if (!set.contains(i * numberOfThreads + offset)) {
+                        throw new AssertionError();
+                    }
+                }
+                for (int i = 1; i < perThread; i += 2) {
+                    if (!set.remove(i * numberOfThreads + offset)) {
+                        throw new AssertionError();
+                    }
+                }
+            }));
+        }
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        for (Thread thread : threads) {
+            thread.setUncaughtExceptionHandler((th, e) -> errors.add(e));
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(errors.isEmpty());
+        assertEquals(numberOfThreads * perThread / 2, set.size());
+        for (int i = 0; i < perThread * numberOfThreads; i++) {
+            assertEquals((i / numberOfThreads) % 2 == 0, set.contains(i));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testRemoveIfDuringResizes() throws InterruptedException {
+        final int numberOfThreads = 3;
+        final int perThread = 20000;
+        final LazyResizableHashSet<Integer> set = new LazyResizableHashSet<>(4);
+        final CountDownLatch done = new CountDownLatch(numberOfThreads);
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numberOfThreads; t++) {
+            final int offset = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    set.add(i * numberOfThreads + offset);
+                }
+                done.countDown();
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.setUncaughtExceptionHandler((th, e) -> errors.add(e));
+            thread.start();
+        }
+        // the buckets of the new table are filtered while they are being filled
+        while (done.getCount() > 0 && errors.isEmpty()) {
+            set.removeIf(x -> x % 2 == 1);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        set.removeIf(x -> x % 2 == 1);
+
+        assertTrue(errors.isEmpty());
+        assertEquals(numberOfThreads * perThread / 2, set.size());
+        for (int i = 0; i < perThread * numberOfThreads; i++) {
+            assertEquals(i % 2 == 0, set.contains(i));
+        }
+    }
+
+    @Test
+    public void testAddAllResizesOnce() {
+        LazyResizableHashSet<Integer> set = new LazyResizableHashSet<>(4);
+        List<Integer> batch = new ArrayList<>();
+        for (int i = -500; i < 500; i++) {
+            batch.add(i);
+        }
+        set.addAll(batch);
+        assertEquals(2048, set.capacity());
+        set.addAll(batch);
+        assertEquals(1000, set.size());
+        assertTrue(set.containsAll(batch));
+
+        assertTrue(set.removeIf(i -> i % 2 == 0));
+        assertEquals(500, set.size());
+        for (int i = -500; i < 500; i++) {
+            assertEquals(i % 2 != 0, set.contains(i));
+        }
+    }
+
+    @Test
+    public void testStreamDuringResizes() throws InterruptedException {
+        final LazyResizableHashSet<Integer> set = new LazyResizableHashSet<>(4);
+        for (int i = 0; i < 1000; i++) {
+            set.add(i);
+        }
+        Thread writer = new Thread(() -> {
+            for (int i = 1000; i < 100000; i++) {
+                set.add(i);
+            }
+        });
+        writer.start();
+        // whatever was there from the start is seen exactly once, even through moved buckets
+        Map<Integer, Long> counts = set.stream().parallel()
+            .collect(Collectors.groupingBy(i -> i, Collectors.counting()));
+        writer.join();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(Long.valueOf(1), counts.get(i));
+        }
+        assertEquals(100000, set.stream().count());
+    }
 }
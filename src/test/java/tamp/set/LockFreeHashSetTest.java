@@ -0,0 +1,165 @@
+package tamp.set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class LockFreeHashSetTest {
+
+    LockFreeHashSet<Integer> set;
+
+    @Test
+    public void testAdd() {
+        set = new LockFreeHashSet<Integer>(4);
+        set.add(10);
+        assertTrue(set.contains(10));
+    }
+
+    @Test
+    public void testAddNegtive() {
+        set = new LockFreeHashSet<Integer>(4);
+        set.add(-10);
+        assertTrue(set.contains(-10));
+    }
+
+    @Test
+    public void testAddRemoveAndContains() {
+        set = new LockFreeHashSet<Integer>(4);
+        set.add(10);
+        set.remove(10);
+        assertFalse(set.contains(10));
+    }
+
+    @Test
+    public void testAddDuplicateRemoveAndContains() {
+        set = new LockFreeHashSet<Integer>(4);
+        set.add(10);
+        set.add(10);
+        assertEquals(1, set.size());
+        set.remove(10);
+        assertFalse(set.contains(10));
+    }
+
+    @Test
+    public void testRemoveWhenNotExists() {
+        set = new LockFreeHashSet<Integer>(4);
+        assertFalse(set.remove(10));
+        assertFalse(set.contains(10));
+    }
+
+    @Test
+    public void testForceResizeThenCheckContains() {
+        set = new LockFreeHashSet<Integer>(4);
+        for (int i = 0; i < 1000; i++) {
+            set.add(i);
+        }
+        assertTrue(set.capacity() >= 256);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(set.contains(i));
+        }
+        assertFalse(set.contains(1000));
+    }
+
+    @Test
+    public void testSameHashCode() {
+        LockFreeHashSet<Colliding> collidingSet = new LockFreeHashSet<>(4);
+        collidingSet.add(new Colliding(1));
+        collidingSet.add(new Colliding(2));
+        collidingSet.add(new Colliding(3));
+        assertTrue(collidingSet.remove(new Colliding(2)));
+        assertTrue(collidingSet.contains(new Colliding(1)));
+        assertFalse(collidingSet.contains(new Colliding(2)));
+        assertTrue(collidingSet.contains(new Colliding(3)));
+        assertEquals(2, collidingSet.size());
+    }
+
+    @Test
+    public void testConcurrentAddAndRemove() throws InterruptedException {
+        final int numberOfThreads = 8;
+        final int perThread = 10000;
+        set = new LockFreeHashSet<Integer>(4);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numberOfThreads; t++) {
+            final int offset = t;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    set.add(i * numberOfThreads + offset);
+                }
+                for (int i = 1; i < perThread; i += 2) {
+                    set.remove(i * numberOfThreads + offset);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(numberOfThreads * perThread / 2, set.size());
+        for (int i = 0; i < perThread * numberOfThreads; i++) {
+            assertEquals((i / numberOfThreads) % 2 == 0, set.contains(i));
+        }
+    }
+
+    static class Colliding {
+        final int id;
+
+        Colliding(final int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Colliding && ((Colliding) obj).id == id;
+        }
+    }
+
+    @Test
+    public void testRemoveIf() {
+        set = new LockFreeHashSet<Integer>(4);
+        for (int i = 0; i < 100; i++) {
+            set.add(i);
+        }
+        assertTrue(set.removeIf(i -> i % 3 == 0));
+        assertFalse(set.removeIf(i -> i % 3 == 0));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i % 3 != 0, set.contains(i));
+        }
+    }
+
+    @Test
+    public void testStream() {
+        set = new LockFreeHashSet<Integer>(4);
+        for (int i = 0; i < 1000; i++) {
+            set.add(i);
+        }
+        assertEquals(1000, set.stream().parallel().count());
+        assertEquals(499500, set.stream().parallel().mapToInt(i -> i).sum());
+        int count = 0;
+        for (int element : set) {
+            assertTrue(element >= 0 && element < 1000);
+            count++;
+        }
+        assertEquals(1000, count);
+    }
+}
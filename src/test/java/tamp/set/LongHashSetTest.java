@@ -0,0 +1,136 @@
+package tamp.set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class LongHashSetTest {
+
+    LongHashSet set;
+
+    @Test
+    public void testAdd() {
+        set = new LongHashSet(4);
+        set.add(10);
+        assertTrue(set.contains(10));
+    }
+
+    @Test
+    public void testAddNegtive() {
+        set = new LongHashSet(4);
+        set.add(-10);
+        assertTrue(set.contains(-10));
+    }
+
+    @Test
+    public void testAddZero() {
+        set = new LongHashSet(4);
+        assertFalse(set.contains(0));
+        set.add(0);
+        assertTrue(set.contains(0));
+        assertEquals(1, set.size());
+        assertTrue(set.remove(0));
+        assertFalse(set.contains(0));
+    }
+
+    @Test
+    public void testAddRemoveAndContains() {
+        set = new LongHashSet(4);
+        set.add(10);
+        set.remove(10);
+        assertFalse(set.contains(10));
+    }
+
+    @Test
+    public void testAddDuplicateRemoveAndContains() {
+        set = new LongHashSet(4);
+        set.add(10);
+        set.add(10);
+        assertEquals(1, set.size());
+        set.remove(10);
+        assertFalse(set.contains(10));
+    }
+
+    @Test
+    public void testRemoveWhenNotExists() {
+        set = new LongHashSet(4);
+        assertFalse(set.remove(10));
+        assertFalse(set.contains(10));
+    }
+
+    @Test
+    public void testBoxedContract() {
+        SimpleSet<Long> boxed = new LongHashSet(4);
+        boxed.add(Long.valueOf(1000L));
+        assertTrue(boxed.contains(Long.valueOf(1000L)));
+        assertTrue(boxed.remove(Long.valueOf(1000L)));
+    }
+
+    @Test
+    public void testForceResizeThenCheckContains() {
+        set = new LongHashSet(4);
+        for (long i = 0; i < 1000; i++) {
+            set.add(i + Integer.MAX_VALUE);
+        }
+        assertEquals(2048, set.capacity());
+        for (long i = 0; i < 1000; i++) {
+            assertTrue(set.contains(i + Integer.MAX_VALUE));
+        }
+        assertFalse(set.contains(1000L + Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testSameAsHashSet() {
+        // small key space so that removes have to shift back long probe sequences
+        set = new LongHashSet(4);
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            long element = random.nextInt(512) - 256;
+            if (random.nextBoolean()) {
+                set.add(element);
+                expected.add(element);
+            } else {
+                assertEquals(expected.remove(element), set.remove(element));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        for (long element = -256; element < 256; element++) {
+            assertEquals(expected.contains(element), set.contains(element));
+        }
+    }
+
+    @Test
+    public void testRemoveIf() {
+        set = new LongHashSet(4);
+        for (long i = 0; i < 100; i++) {
+            set.add(i);
+        }
+        assertTrue(set.removeIf(i -> i % 3 == 0));
+        assertEquals(66, set.size());
+        for (long i = 0; i < 100; i++) {
+            assertEquals(i % 3 != 0, set.contains(i));
+        }
+    }
+
+    @Test
+    public void testStream() {
+        set = new LongHashSet(4);
+        for (long i = 0; i < 1000; i++) {
+            set.add(i);
+        }
+        assertEquals(1000, set.stream().parallel().count());
+        assertEquals(499500, set.stream().parallel().mapToLong(i -> i).sum());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityAboveMax() {
+        new LongHashSet((1 << 30) + 1);
+    }
+}
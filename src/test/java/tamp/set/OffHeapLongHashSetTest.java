@@ -0,0 +1,169 @@
+package tamp.set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OffHeapLongHashSetTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    OffHeapLongHashSet set;
+
+    @Test
+    public void testAdd() {
+        set = new OffHeapLongHashSet(4);
+        set.add(10);
+        assertTrue(set.contains(10));
+    }
+
+    @Test
+    public void testAddZero() {
+        set = new OffHeapLongHashSet(4);
+        assertFalse(set.contains(0));
+        set.add(0);
+        assertTrue(set.contains(0));
+        assertEquals(1, set.size());
+        assertTrue(set.remove(0));
+        assertFalse(set.contains(0));
+    }
+
+    @Test
+    public void testAddRemoveAndContains() {
+        set = new OffHeapLongHashSet(4);
+        set.add(10);
+        set.remove(10);
+        assertFalse(set.contains(10));
+    }
+
+    @Test
+    public void testForceResizeThenCheckContains() {
+        set = new OffHeapLongHashSet(4);
+        for (long i = 0; i < 1000; i++) {
+            set.add(i);
+        }
+        assertEquals(1000, set.size());
+        assertEquals(2048, set.capacity());
+        for (long i = 0; i < 1000; i++) {
+            assertTrue(set.contains(i));
+        }
+        assertFalse(set.contains(1000));
+    }
+
+    @Test
+    public void testSameAsHashSet() {
+        set = new OffHeapLongHashSet(4);
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            long element = random.nextInt(5000) - 2500;
+            if (random.nextBoolean()) {
+                set.add(element);
+                expected.add(element);
+            } else {
+                assertEquals(expected.remove(element), set.remove(element));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        for (long element = -2500; element < 2500; element++) {
+            assertEquals(expected.contains(element), set.contains(element));
+        }
+    }
+
+    @Test
+    public void testReopenFile() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("set");
+        set = new OffHeapLongHashSet(file, 4);
+        for (long i = 0; i < 1000; i++) {
+            set.add(i);
+        }
+        set.remove(500L);
+        set.close();
+
+        set = new OffHeapLongHashSet(file, 4);
+        assertEquals(999, set.size());
+        assertEquals(2048, set.capacity());
+        for (long i = 0; i < 1000; i++) {
+            assertEquals(i != 500, set.contains(i));
+        }
+        for (long i = 1000; i < 1100; i++) {
+            set.add(i);
+        }
+        assertEquals(4096, set.capacity());
+        set.close();
+        assertFalse(Files.exists(file.resolveSibling("set.resize")));
+
+        set = new OffHeapLongHashSet(file, 4);
+        assertEquals(1099, set.size());
+        assertTrue(set.contains(1099L));
+        set.close();
+    }
+
+    @Test
+    public void testOpenOtherFile() throws IOException {
+        Path file = folder.newFile().toPath();
+        byte[] content = "not a set".getBytes();
+        Files.write(file, content);
+        try {
+            new OffHeapLongHashSet(file, 4);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // the file is left as it was
+        }
+        assertArrayEquals(content, Files.readAllBytes(file));
+    }
+
+    @Test
+    public void testLargerThan2GB() throws IOException {
+        // 2^28 slots, 2GB in 2 chunks, the file is sparse so only the touched pages take space
+        set = new OffHeapLongHashSet(folder.getRoot().toPath().resolve("large"), 1L << 28);
+        Random random = new Random(42);
+        long[] elements = new long[10000];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = random.nextLong();
+            set.add(elements[i]);
+        }
+        for (long element : elements) {
+            assertTrue(set.contains(element));
+        }
+        assertEquals(elements.length, set.size());
+        set.close();
+    }
+
+    @Test
+    public void testRemoveIf() {
+        set = new OffHeapLongHashSet(4);
+        for (long i = 0; i < 100; i++) {
+            set.add(i);
+        }
+        assertTrue(set.removeIf(i -> i % 3 == 0));
+        assertEquals(66, set.size());
+        for (long i = 0; i < 100; i++) {
+            assertEquals(i % 3 != 0, set.contains(i));
+        }
+    }
+
+    @Test
+    public void testStream() {
+        set = new OffHeapLongHashSet(4);
+        for (long i = 0; i < 1000; i++) {
+            set.add(i);
+        }
+        assertEquals(1000, set.stream().parallel().count());
+        assertEquals(499500, set.stream().parallel().mapToLong(i -> i).sum());
+    }
+}
@@ -1,8 +1,12 @@
 package tamp.set;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 
 import tamp.set.SimpleConcurrentHashSet;
@@ -58,7 +62,97 @@ public class SimpleConcurrentHashSetTest {
 
     @Test
     public void testForceResizeThenCheckContains() {
+        set = new SimpleConcurrentHashSet<Integer>(4);
+        for (int i = 0; i < 100; i++) {
+            set.add(i);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertTrue(set.contains(i));
+        }
+        assertFalse(set.contains(100));
+    }
 
+    @Test (timeout = 10000)
+    public void testConcurrentResize() throws InterruptedException {
+        set = new SimpleConcurrentHashSet<Integer>(4);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t * 1000;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    set.add(offset + i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < 4000; i++) {
+            assertTrue(set.contains(i));
+        }
     }
 
+    @Test
+    public void testAddAllContainsAllAndRemoveIf() {
+        set = new SimpleConcurrentHashSet<Integer>(4);
+        List<Integer> batch = new ArrayList<>();
+        for (int i = -500; i < 500; i++) {
+            batch.add(i);
+        }
+        set.addAll(batch);
+        set.addAll(batch);
+        assertEquals(1000, set.size.sum());
+        assertTrue(set.containsAll(batch));
+
+        assertTrue(set.removeIf(i -> i % 2 == 0));
+        assertFalse(set.removeIf(i -> i % 2 == 0));
+        assertEquals(500, set.size.sum());
+        for (int i = -500; i < 500; i++) {
+            assertEquals(i % 2 != 0, set.contains(i));
+        }
+        assertFalse(set.containsAll(batch));
+    }
+
+    @Test (timeout = 10000)
+    public void testConcurrentAddAll() throws InterruptedException {
+        set = new SimpleConcurrentHashSet<Integer>(4);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t * 10000;
+            threads[t] = new Thread(() -> {
+                for (int b = 0; b < 10000; b += 1000) {
+                    List<Integer> batch = new ArrayList<>();
+                    for (int i = 0; i < 1000; i++) {
+                        batch.add(offset + b + i);
+                    }
+                    set.addAll(batch);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000, set.size.sum());
+        for (int i = 0; i < 40000; i++) {
+            assertTrue(set.contains(i));
+        }
+    }
+
+    @Test
+    public void testStream() {
+        set = new SimpleConcurrentHashSet<Integer>(4);
+        for (int i = 0; i < 1000; i++) {
+            set.add(i);
+        }
+        assertEquals(1000, set.stream().parallel().count());
+        assertEquals(499500, set.stream().parallel().mapToInt(i -> i).sum());
+        int count = 0;
+        for (int element : set) {
+            assertTrue(element >= 0 && element < 1000);
+            count++;
+        }
+        assertEquals(1000, count);
+    }
 }
@@ -0,0 +1,43 @@
+package tamp.skiplist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class GeometricLevelGeneratorTest {
+
+    private static final int DRAWS = 100000;
+
+    @Test
+    public void testHalf() {
+        assertEquals(0.5, promotedShare(GeometricLevelGenerator.HALF), 0.02);
+    }
+
+    @Test
+    public void testQuarter() {
+        assertEquals(0.25, promotedShare(GeometricLevelGenerator.QUARTER), 0.02);
+    }
+
+    @Test
+    public void testMaxLevel() {
+        for (int i = 0; i < DRAWS; i++) {
+            assertTrue(GeometricLevelGenerator.HALF.nextLevel(2) <= 2);
+        }
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testNotAPowerOfHalf() {
+        new GeometricLevelGenerator(0.3);
+    }
+
+    private static double promotedShare(final LevelGenerator generator) {
+        int promoted = 0;
+        for (int i = 0; i < DRAWS; i++) {
+            if (generator.nextLevel(32) > 0) {
+                promoted++;
+            }
+        }
+        return promoted / (double) DRAWS;
+    }
+}
@@ -0,0 +1,135 @@
+package tamp.skiplist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class LockFreeSkipListTest {
+
+    LockFreeSkipList<Integer> skipList;
+
+    @Test
+    public void testAdd() {
+        skipList = new LockFreeSkipList<Integer>(4);
+        skipList.add(10);
+        assertTrue(skipList.contains(10));
+    }
+
+    @Test
+    public void testContainsOnEmpty() {
+        skipList = new LockFreeSkipList<Integer>(4);
+        assertFalse(skipList.contains(10));
+    }
+
+    @Test
+    public void testAddRemoveAndContains() {
+        skipList = new LockFreeSkipList<Integer>(4);
+        skipList.add(10);
+        skipList.remove(10);
+        assertFalse(skipList.contains(10));
+    }
+
+    @Test
+    public void testAddDuplicateRemoveAndContains() {
+        skipList = new LockFreeSkipList<Integer>(4);
+        skipList.add(10);
+        skipList.add(10);
+        skipList.remove(10);
+        assertFalse(skipList.contains(10));
+    }
+
+    @Test
+    public void testIsOrdered() {
+        skipList = new LockFreeSkipList<Integer>(4);
+        skipList.add(3);
+        skipList.add(1);
+        skipList.add(15);
+        skipList.add(2);
+        skipList.remove(2);
+        assertEquals("1, 3, 15, ", skipList.toString());
+    }
+
+    @Test
+    public void testFloorCeilingAndSubSet() {
+        skipList = new LockFreeSkipList<Integer>(4);
+        for (int i = 0; i < 100; i += 10) {
+            skipList.add(i);
+        }
+        skipList.remove(30);
+        assertEquals(new Integer(20), skipList.floor(35));
+        assertEquals(new Integer(40), skipList.ceiling(25));
+        assertNull(skipList.ceiling(95));
+        assertEquals(new Integer(40), skipList.floor(40));
+        assertEquals(new Integer(40), skipList.ceiling(40));
+        assertEquals(new Integer(0), skipList.ceiling(-5));
+        assertNull(skipList.floor(-5));
+        assertEquals(new Integer(20), skipList.floor(30));
+        assertEquals(new Integer(40), skipList.ceiling(30));
+        List<Integer> range = new ArrayList<>();
+        Iterator<Integer> iterator = skipList.subSet(15, 50);
+        while (iterator.hasNext()) {
+            range.add(iterator.next());
+        }
+        assertEquals(Arrays.asList(20, 40), range);
+    }
+
+    @Test
+    public void testPollFirst() {
+        skipList = new LockFreeSkipList<Integer>(4);
+        assertNull(skipList.pollFirst());
+        skipList.add(2);
+        skipList.add(1);
+        assertEquals(new Integer(1), skipList.first());
+        assertEquals(new Integer(1), skipList.pollFirst());
+        assertEquals(new Integer(2), skipList.pollFirst());
+        assertNull(skipList.first());
+    }
+
+    @Test
+    public void testConcurrentAddAndRemove() throws InterruptedException {
+        final int numberOfThreads = 8;
+        final int perThread = 5000;
+        skipList = new LockFreeSkipList<Integer>(16);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numberOfThreads; t++) {
+            final int offset = t;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                // each thread owns the keys congruent to its offset, removes the odd ones
+                for (int i = 0; i < perThread; i++) {
+                    skipList.add(i * numberOfThreads + offset);
+                }
+                for (int i = 1; i < perThread; i += 2) {
+                    skipList.remove(i * numberOfThreads + offset);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int i = 0; i < perThread; i++) {
+            for (int t = 0; t < numberOfThreads; t++) {
+                assertEquals(i % 2 == 0, skipList.contains(i * numberOfThreads + t));
+            }
+        }
+    }
+}
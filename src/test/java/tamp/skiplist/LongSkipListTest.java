@@ -0,0 +1,100 @@
+package tamp.skiplist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LongSkipListTest {
+
+    LongSkipList skipList;
+
+    @Before
+    public void setup() {
+        skipList = new LongSkipList(4, 2);
+    }
+
+    @Test
+    public void testAddRemoveAndContains() {
+        skipList.add(10L);
+        assertTrue(skipList.contains(10L));
+        skipList.add(10L);
+        assertEquals(1, skipList.size());
+        skipList.remove(10L);
+        assertFalse(skipList.contains(10L));
+        assertEquals(0, skipList.size());
+    }
+
+    @Test
+    public void testNegativeKeys() {
+        skipList.add(-10L);
+        skipList.add(Long.MIN_VALUE);
+        skipList.add(Long.MAX_VALUE);
+        assertEquals(Long.MIN_VALUE + ", -10, " + Long.MAX_VALUE + ", ", skipList.toString());
+    }
+
+    @Test
+    public void testFloorCeilingAndSubSet() {
+        for (long i = 0; i < 100; i += 10) {
+            skipList.add(i);
+        }
+        assertEquals(-1L, skipList.floor(-5L, -1L));
+        assertEquals(20L, skipList.floor(25L, -1L));
+        assertEquals(30L, skipList.ceiling(25L, -1L));
+        assertEquals(-1L, skipList.ceiling(95L, -1L));
+
+        List<Long> range = new ArrayList<>();
+        PrimitiveIterator.OfLong iterator = skipList.subSet(15L, 50L);
+        while (iterator.hasNext()) {
+            range.add(iterator.nextLong());
+        }
+        assertEquals(Arrays.asList(20L, 30L, 40L), range);
+    }
+
+    @Test
+    public void testPollFirst() {
+        skipList.add(2L);
+        skipList.add(1L);
+        assertEquals(1L, skipList.first());
+        assertEquals(1L, skipList.pollFirst());
+        assertEquals(2L, skipList.pollFirst());
+        assertEquals(0, skipList.size());
+    }
+
+    @Test (expected = NoSuchElementException.class)
+    public void testPollFirstOnEmpty() {
+        skipList.pollFirst();
+    }
+
+    @Test
+    public void testSameAsTreeSet() {
+        // lots of removes so the recycled nodes get reused
+        skipList = new LongSkipList(8);
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            long key = random.nextInt(1000);
+            if (random.nextBoolean()) {
+                skipList.add(key);
+                expected.add(key);
+            } else {
+                skipList.remove(key);
+                expected.remove(key);
+            }
+        }
+        assertEquals(expected.size(), skipList.size());
+        for (long key = 0; key < 1000; key++) {
+            assertEquals(expected.contains(key), skipList.contains(key));
+        }
+    }
+}
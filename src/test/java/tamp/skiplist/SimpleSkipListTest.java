@@ -0,0 +1,135 @@
+package tamp.skiplist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SimpleSkipListTest {
+
+    SimpleSkipList<Integer> skipList;
+
+    @Before
+    public void setup() {
+        skipList = new SimpleSkipList<Integer>(4);
+    }
+
+    @Test
+    public void testAddRemoveAndContains() {
+        skipList.add(10);
+        assertTrue(skipList.contains(10));
+        skipList.remove(10);
+        assertFalse(skipList.contains(10));
+        assertEquals(0, skipList.size());
+    }
+
+    @Test
+    public void testFloorAndCeiling() {
+        skipList.add(10);
+        skipList.add(20);
+        skipList.add(30);
+        assertNull(skipList.floor(5));
+        assertEquals(new Integer(10), skipList.floor(10));
+        assertEquals(new Integer(20), skipList.floor(25));
+        assertEquals(new Integer(30), skipList.floor(35));
+        assertEquals(new Integer(10), skipList.ceiling(5));
+        assertEquals(new Integer(20), skipList.ceiling(20));
+        assertEquals(new Integer(30), skipList.ceiling(25));
+        assertNull(skipList.ceiling(35));
+    }
+
+    @Test
+    public void testFirstAndPollFirst() {
+        assertNull(skipList.first());
+        assertNull(skipList.pollFirst());
+        skipList.add(2);
+        skipList.add(1);
+        skipList.add(3);
+        assertEquals(new Integer(1), skipList.first());
+        assertEquals(new Integer(1), skipList.pollFirst());
+        assertEquals(new Integer(2), skipList.pollFirst());
+        assertFalse(skipList.contains(2));
+        assertTrue(skipList.contains(3));
+        assertEquals(1, skipList.size());
+    }
+
+    @Test
+    public void testSubSet() {
+        for (int i = 0; i < 100; i += 10) {
+            skipList.add(i);
+        }
+        assertEquals(Arrays.asList(20, 30, 40), toList(skipList.subSet(15, 50)));
+        assertEquals(Arrays.asList(20, 30, 40), toList(skipList.subSet(20, 41)));
+        assertEquals(Arrays.asList(), toList(skipList.subSet(91, 200)));
+        assertEquals(Arrays.asList(), toList(skipList.subSet(30, 30)));
+    }
+
+    @Test
+    public void testLevelsGrowWithTheNumberOfElements() {
+        skipList = new SimpleSkipList<Integer>(1);
+        for (int i = 0; i < 1024; i++) {
+            skipList.add(i);
+        }
+        assertEquals(10, skipList.levels());
+        for (int i = 0; i < 1024; i++) {
+            assertTrue(skipList.contains(i));
+        }
+    }
+
+    @Test
+    public void testLevelsStopAtMaxLevel() {
+        skipList = new SimpleSkipList<Integer>(1, GeometricLevelGenerator.QUARTER, 3);
+        for (int i = 0; i < 1024; i++) {
+            skipList.add(i);
+        }
+        assertEquals(3, skipList.levels());
+    }
+
+    @Test
+    public void testFromSorted() {
+        List<Integer> sorted = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            sorted.add(i * 2);
+        }
+        skipList = SimpleSkipList.fromSorted(sorted.iterator());
+        assertEquals(1000, skipList.size());
+        assertEquals(10, skipList.levels());
+        for (int i = 0; i < 2000; i++) {
+            assertEquals(i % 2 == 0, skipList.contains(i));
+        }
+        assertEquals(sorted, toList(skipList.subSet(0, 2000)));
+
+        // still a regular skip list afterwards
+        skipList.add(1);
+        skipList.remove(0);
+        assertEquals(new Integer(1), skipList.first());
+    }
+
+    @Test
+    public void testFromSortedWithRandomLevelsSkipsDuplicates() {
+        skipList = SimpleSkipList.fromSorted(Arrays.asList(1, 2, 2, 3).iterator(),
+            GeometricLevelGenerator.QUARTER);
+        assertEquals(Arrays.asList(1, 2, 3), toList(skipList.subSet(0, 10)));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testFromSortedWhenNotSorted() {
+        SkipList.fromSorted(Arrays.asList(1, 3, 2).iterator());
+    }
+
+    private static List<Integer> toList(final Iterator<Integer> iterator) {
+        List<Integer> list = new ArrayList<>();
+        while (iterator.hasNext()) {
+            list.add(iterator.next());
+        }
+        return list;
+    }
+}